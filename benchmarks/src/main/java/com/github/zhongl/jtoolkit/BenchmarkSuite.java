@@ -0,0 +1,88 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link BenchmarkSuite} runs benchmarks for each of thread counts, and writes results in a directory:
+ * <code>jmh-t&lt;threads&gt;.json</code> of JMH for each count, and <code>summary.csv</code> of all, which could be
+ * diffed between releases.
+ * <p/>
+ * Options are system properties:
+ * <ul>
+ * <li><code>include</code>, regex of benchmarks, default all;</li>
+ * <li><code>threads</code>, like <code>1,2,4</code>, default 1 and all cpus;</li>
+ * <li><code>out</code>, directory of results, default <code>target/jmh</code>;</li>
+ * <li><code>quick</code>, true for 1 warmup and 2 measurement iterations of 1s, to smoke test.</li>
+ * </ul>
+ * e.g. <code>java -Dthreads=1,4 -cp benchmarks.jar com.github.zhongl.jtoolkit.BenchmarkSuite</code>.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class BenchmarkSuite {
+
+  private BenchmarkSuite() {}
+
+  public static void main(final String... args) throws RunnerException, FileNotFoundException {
+    final String include = System.getProperty("include", ".*Benchmark.*");
+    final String threads = System.getProperty("threads", "1," + Runtime.getRuntime().availableProcessors());
+    final File out = new File(System.getProperty("out", "target/jmh"));
+    if (!out.isDirectory() && !out.mkdirs()) throw new IllegalStateException("Can't create " + out);
+
+    final Map<Integer, Collection<RunResult>> results = new TreeMap<Integer, Collection<RunResult>>();
+    for (final String count : threads.split(",")) {
+      final int t = Integer.parseInt(count.trim());
+      if (results.containsKey(t)) continue;
+      final ChainedOptionsBuilder options = new OptionsBuilder()
+          .include(include)
+          .threads(t)
+          .resultFormat(ResultFormatType.JSON)
+          .result(new File(out, "jmh-t" + t + ".json").getPath());
+      if (Boolean.getBoolean("quick")) {
+        options.warmupIterations(1).warmupTime(TimeValue.seconds(1L))
+               .measurementIterations(2).measurementTime(TimeValue.seconds(1L));
+      }
+      results.put(t, new Runner(options.build()).run());
+    }
+    summarize(results, new File(out, "summary.csv"));
+  }
+
+  private static void summarize(final Map<Integer, Collection<RunResult>> results, final File file)
+      throws FileNotFoundException {
+    final PrintWriter writer = new PrintWriter(file);
+    try {
+      writer.println("benchmark,params,threads,mode,score,error,unit");
+      for (final Map.Entry<Integer, Collection<RunResult>> entry : results.entrySet()) {
+        for (final RunResult result : entry.getValue()) {
+          final org.openjdk.jmh.results.Result<?> primary = result.getPrimaryResult();
+          writer.println(result.getParams().getBenchmark() + ',' + params(result) + ',' + entry.getKey() + ','
+                             + result.getParams().getMode().shortLabel() + ',' + primary.getScore() + ','
+                             + primary.getScoreError() + ',' + primary.getScoreUnit());
+        }
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  private static String params(final RunResult result) {
+    final StringBuilder sb = new StringBuilder();
+    for (final String key : result.getParams().getParamsKeys()) {
+      if (sb.length() > 0) sb.append(';');
+      sb.append(key).append('=').append(result.getParams().getParam(key));
+    }
+    return sb.toString();
+  }
+}
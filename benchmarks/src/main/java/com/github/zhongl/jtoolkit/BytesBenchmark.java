@@ -0,0 +1,80 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BytesBenchmark} compares allocating codecs of {@link Bytes} with encoding into and decoding from a buffer given
+ * by caller, run it with <code>-prof gc</code> to see allocation rate.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BytesBenchmark {
+
+  @Param({"ascii", "utf8"})
+  public String text;
+
+  @Param({"heap", "direct"})
+  public String buffer;
+
+  private String value;
+  private ByteBuffer target;
+  private ByteBuffer encoded;
+  private int number;
+
+  @Setup
+  public void setUp() {
+    value = "ascii".equals(text)
+        ? "com.github.zhongl.jtoolkit.BytesBenchmark#encode"
+        : "com.github.zhongl.jtoolkit.字节编码基准测试#encode";
+    target = "heap".equals(buffer) ? ByteBuffer.allocate(256) : ByteBuffer.allocateDirect(256);
+    encoded = "heap".equals(buffer) ? ByteBuffer.allocate(256) : ByteBuffer.allocateDirect(256);
+    Bytes.encode(value, encoded);
+    encoded.flip();
+  }
+
+  @Benchmark
+  public ByteBuffer toBytesThenPut() {
+    target.clear();
+    return target.put(Bytes.toBytes(value));
+  }
+
+  @Benchmark
+  public int encode() {
+    target.clear();
+    return Bytes.encode(value, target);
+  }
+
+  @Benchmark
+  public String toStringOfBuffer() {
+    return Bytes.toString(encoded);
+  }
+
+  @Benchmark
+  public String decode() {
+    final String decoded = Bytes.decode(encoded, encoded.remaining());
+    encoded.rewind();
+    return decoded;
+  }
+
+  @Benchmark
+  public int varint() {
+    target.clear();
+    Bytes.putVarint(target, Bytes.zigzag(number++ - 4096));
+    target.flip();
+    return Bytes.unzigzag(Bytes.getVarint(target));
+  }
+
+  @Benchmark
+  public int toBytesOfInt() {
+    return Bytes.toInt(Bytes.toBytes(number++));
+  }
+}
@@ -0,0 +1,70 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.zhongl.jtoolkit.CentralExecutor.nil;
+import static com.github.zhongl.jtoolkit.CentralExecutor.reserve;
+
+/**
+ * {@link CentralExecutorBenchmark} measures {@link CentralExecutor#execute(Runnable)} of quotaed tasks, including the
+ * time to run them, in batches, so that the queue would not grow without bound.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CentralExecutorBenchmark {
+  private static final int BATCH = 128;
+
+  @Param({"4"})
+  public int threadSize;
+
+  @Param({"PESSIMISM", "OPTIMISM"})
+  public CentralExecutor.Policy policy;
+
+  private CentralExecutor executor;
+
+  @Setup
+  public void setUp() {
+    executor = new CentralExecutor(threadSize, policy);
+    executor.quota(Task.class, reserve(threadSize / 2), policy == CentralExecutor.Policy.OPTIMISM
+        ? CentralExecutor.elastic(threadSize - threadSize / 2) : nil());
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    executor.shutdownNow();
+    executor.awaitTermination(1L, TimeUnit.SECONDS);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void execute(final Batch batch) {
+    batch.done.set(0);
+    for (int i = 0; i < BATCH; i++) executor.execute(batch.task);
+    while (batch.done.get() < BATCH) Thread.yield();
+  }
+
+  /** {@link Batch} of a benchmark thread. */
+  @State(Scope.Thread)
+  public static class Batch {
+    final AtomicInteger done = new AtomicInteger();
+    final Task task = new Task(done);
+  }
+
+  static final class Task implements Runnable {
+    private final AtomicInteger done;
+
+    Task(final AtomicInteger done) {this.done = done;}
+
+    @Override
+    public void run() { done.incrementAndGet(); }
+  }
+}
@@ -0,0 +1,43 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConfigurationBenchmark} compares reading an int by {@link PropertiesHelper} with {@link Configuration}.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ConfigurationBenchmark {
+  private static final Configuration.Key<Integer> KEY = Configuration.key("timeout", Configuration.INT);
+
+  private PropertiesHelper helper;
+  private Configuration configuration;
+
+  @Setup
+  public void setUp() {
+    final Properties properties = new Properties();
+    properties.setProperty("timeout", " 3000 ");
+    helper = new PropertiesHelper(properties);
+    configuration = new Configuration(properties);
+  }
+
+  @Benchmark
+  public int propertiesHelper() {
+    return helper.getInt("timeout");
+  }
+
+  @Benchmark
+  public int configuration() {
+    return configuration.get(KEY);
+  }
+}
@@ -0,0 +1,58 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DirectBufferPoolBenchmark} compares acquiring and releasing of {@link DirectBufferPool} with
+ * {@link ByteBuffer#allocateDirect(int)}, with or without freeing by {@link DirectByteBufferCleaner}.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(value = 1, jvmArgsAppend = "-XX:MaxDirectMemorySize=256m")
+public class DirectBufferPoolBenchmark {
+
+  @Param({"1024", "65536"})
+  public int size;
+
+  private DirectBufferPool pool;
+
+  @Setup
+  public void setUp() {
+    pool = new DirectBufferPool();
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.dispose();
+  }
+
+  @Benchmark
+  public int pooled() {
+    final DirectBufferPool.Pooled pooled = pool.acquire(size);
+    final int capacity = pooled.buffer().put(0, (byte) 1).capacity();
+    pooled.release();
+    return capacity;
+  }
+
+  @Benchmark
+  public int allocateDirect() {
+    return ByteBuffer.allocateDirect(size).put(0, (byte) 1).capacity();
+  }
+
+  @Benchmark
+  public int allocateDirectAndClean() {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+    final int capacity = buffer.put(0, (byte) 1).capacity();
+    DirectByteBufferCleaner.clean(buffer);
+    return capacity;
+  }
+}
@@ -0,0 +1,83 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DirectoryCleanerBenchmark} compares {@link DirectoryCleaner#clean(java.io.File)} with
+ * {@link DirectoryCleaner#cleanInParallel(Path, ForkJoinPool, DirectoryCleaner.Listener)} on a generated tree, in
+ * which every leaf directory has 1000 files, and every branch has 100 leaves.
+ * <p/>
+ * Generating the tree is excluded from measurement, but it takes long, run with <code>-p files=10000</code> for a
+ * quick look.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DirectoryCleanerBenchmark {
+  private static final int FILES_OF_LEAF = 1000;
+  private static final int LEAVES_OF_BRANCH = 100;
+
+  @Param({"1000000"})
+  public int files;
+
+  @Param({"4"})
+  public int parallelism;
+
+  private Path root;
+  private ForkJoinPool pool;
+
+  @Setup(Level.Trial)
+  public void setUpPool() {
+    pool = new ForkJoinPool(parallelism);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownPool() {
+    pool.shutdown();
+  }
+
+  @Setup(Level.Invocation)
+  public void generate() throws IOException {
+    root = Files.createTempDirectory("cleaner");
+    for (int leaf = 0; leaf * FILES_OF_LEAF < files; leaf++) {
+      final Path dir = root.resolve("b" + leaf / LEAVES_OF_BRANCH).resolve("l" + leaf);
+      Files.createDirectories(dir);
+      for (int i = 0; i < FILES_OF_LEAF; i++) Files.createFile(dir.resolve("f" + i));
+    }
+  }
+
+  @TearDown(Level.Invocation)
+  public void cleanUp() {
+    DirectoryCleaner.cleanInParallel(root);
+  }
+
+  @Benchmark
+  public boolean recurseTree() {
+    DirectoryCleaner.clean(root.toFile());
+    return Files.exists(root);
+  }
+
+  @Benchmark
+  public long forkJoin() {
+    return DirectoryCleaner.cleanInParallel(root, pool, LISTENER).deleted();
+  }
+
+  private static final DirectoryCleaner.Listener LISTENER = new DirectoryCleaner.Listener() {
+    @Override
+    public void onProgress(final long deleted) { }
+
+    @Override
+    public void onError(final Path path, final IOException e) { throw new IllegalStateException(path.toString(), e); }
+  };
+}
@@ -0,0 +1,30 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link EventsBenchmark} measures {@link Events#enqueue(Runnable)}, of which the queue is bounded, so a producer
+ * faster than executors would run tasks by itself.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventsBenchmark {
+  private final AtomicLong executed = new AtomicLong();
+
+  private final Runnable task = new Runnable() {
+    @Override
+    public void run() { executed.incrementAndGet(); }
+  };
+
+  @Benchmark
+  public void enqueue() { Events.enqueue(task); }
+}
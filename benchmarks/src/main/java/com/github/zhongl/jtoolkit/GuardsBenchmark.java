@@ -0,0 +1,87 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GuardsBenchmark} measures checks of {@link Guards} passed, which are on the hot path of callers, run it with
+ * <code>-prof gc</code> to see primitive checks allocate nothing while {@link Guards.NumberCheck} does.
+ * <p/>
+ * Checks of arrays are measured per element, by builders of each call against a compiled {@link Guards.Range}.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuardsBenchmark {
+  private static final int LENGTH = 1024;
+  private static final Guards.Range PERCENT = Guards.range(0, 100).exclusiveMax();
+
+  public int value = 42;
+  public int min = 0; // bounds of configuration, which JIT could not fold
+  public int max = 100;
+  public long id = 9007199254740993L;
+  public double ratio = 0.42;
+  public String text = "jtoolkit";
+  public int[] values;
+
+  @Setup
+  public void setUp() {
+    final Random random = new Random(7L);
+    values = new int[LENGTH];
+    for (int i = 0; i < LENGTH; i++) values[i] = random.nextInt(100);
+  }
+
+  @Benchmark
+  public int checkRangeBoxed() {
+    Guards.check(value).greaterThanOrEqual(0).lessThan(100).orComplain();
+    return value;
+  }
+
+  @Benchmark
+  public int checkRangeInt() {
+    Guards.checkLong(value).greaterThanOrEqual(0).lessThan(100).orComplain();
+    return value;
+  }
+
+  @Benchmark
+  public long checkRangeLong() {
+    Guards.checkLong(id).greaterThan(0L).lessThanOrEqual(Long.MAX_VALUE).orComplain();
+    return id;
+  }
+
+  @Benchmark
+  public double checkRangeDouble() {
+    Guards.checkDouble(ratio).greaterThanOrEqual(0d).lessThanOrEqual(1d).orComplain();
+    return ratio;
+  }
+
+  @Benchmark
+  public String getOrComplain() { return Guards.get(text).orComplain("text should not be null"); }
+
+  @Benchmark
+  public int checkRangeOfBounds() {
+    Guards.checkLong(value).greaterThanOrEqual(min).lessThan(max).orComplain();
+    return value;
+  }
+
+  @Benchmark
+  public long checkRangeCompiled() { return PERCENT.orComplain(value); }
+
+  @Benchmark
+  @OperationsPerInvocation(LENGTH)
+  public int[] checkArrayByBuilders() {
+    for (final int v : values) Guards.checkLong(v).greaterThanOrEqual(0).lessThan(100).orComplain();
+    return values;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LENGTH)
+  public int[] checkArrayCompiled() { return PERCENT.orComplain(values); }
+}
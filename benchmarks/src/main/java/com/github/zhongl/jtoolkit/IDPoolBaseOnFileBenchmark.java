@@ -0,0 +1,52 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IDPoolBaseOnFileBenchmark} measures acquiring and releasing ids of {@link IDPoolBaseOnFile}, of which
+ * <code>used</code> percent are held during the benchmark, since acquisition probes at random until a free id.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IDPoolBaseOnFileBenchmark {
+
+  @Param({"65536"})
+  public int capacity;
+
+  @Param({"0", "50", "90"})
+  public int used;
+
+  private File file;
+  private IDPoolBaseOnFile pool;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = File.createTempFile("idpool", ".bits");
+    pool = new IDPoolBaseOnFile(capacity, file.getPath());
+    pool.reset();
+    for (int i = 0; i < capacity / 100 * used; i++) pool.acquire(i);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.dispose();
+    file.delete();
+  }
+
+  @Benchmark
+  public int acquireAndRelease() {
+    final int id = pool.acquire();
+    pool.release(id);
+    return id;
+  }
+}
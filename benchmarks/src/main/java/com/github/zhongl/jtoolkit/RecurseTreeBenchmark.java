@@ -0,0 +1,123 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link RecurseTreeBenchmark} walks in-memory trees of about 100K nodes, compares traversals of {@link RecurseTree}
+ * with the former walk on {@link Stack}.
+ * <p/>
+ * Shape deep is a chain, wide is a root with all the others as children, and bushy has 10 children for each branch.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecurseTreeBenchmark {
+  private static final int NODES = 100000;
+
+  @Param({"deep", "wide", "bushy"})
+  public String shape;
+
+  private Node root;
+
+  @Setup
+  public void setUp() {
+    if ("deep".equals(shape)) {
+      root = new Node();
+      Node node = root;
+      for (int i = 1; i < NODES; i++) node = node.add(new Node());
+    } else if ("wide".equals(shape)) {
+      root = new Node();
+      for (int i = 1; i < NODES; i++) root.add(new Node());
+    } else {
+      root = bushy(5);
+    }
+  }
+
+  @Benchmark
+  public void stack(final Blackhole blackhole) {
+    final Stack<Object[]> stack = new Stack<Object[]>();
+    stack.push(new Object[]{root, FACTORY.iterator(root)});
+    while (!stack.empty()) {
+      final Object[] level = stack.pop();
+      @SuppressWarnings("unchecked")
+      final Iterator<Node> children = (Iterator<Node>) level[1];
+      if (children.hasNext()) {
+        stack.push(level);
+        final Node child = children.next();
+        stack.push(new Object[]{child, FACTORY.iterator(child)});
+      } else {
+        blackhole.consume(level[0]);
+      }
+    }
+  }
+
+  @Benchmark
+  public void run(final Blackhole blackhole) {
+    RecurseTree.run(root, FACTORY, new RecurseTree.Callback<Node>() {
+      @Override
+      public void onCallback(final Node obj) { blackhole.consume(obj); }
+    });
+  }
+
+  @Benchmark
+  public void preOrder(final Blackhole blackhole) {
+    traverse(RecurseTree.Order.PRE, blackhole);
+  }
+
+  @Benchmark
+  public void breadthFirst(final Blackhole blackhole) {
+    traverse(RecurseTree.Order.BREADTH, blackhole);
+  }
+
+  @Benchmark
+  public long parallel() {
+    final LongAdder count = new LongAdder();
+    RecurseTree.runInParallel(root, FACTORY, new RecurseTree.Callback<Node>() {
+      @Override
+      public void onCallback(final Node obj) { count.increment(); }
+    }, ForkJoinPool.commonPool());
+    return count.sum();
+  }
+
+  private void traverse(final RecurseTree.Order order, final Blackhole blackhole) {
+    for (final Iterator<Node> iterator = RecurseTree.traverse(root, FACTORY, order); iterator.hasNext(); ) {
+      blackhole.consume(iterator.next());
+    }
+  }
+
+  private static Node bushy(final int depth) {
+    final Node node = new Node();
+    if (depth > 0) for (int i = 0; i < 10; i++) node.add(bushy(depth - 1));
+    return node;
+  }
+
+  private static final RecurseTree.IteratorFactory<Node> FACTORY = new RecurseTree.IteratorFactory<Node>() {
+    @Override
+    public Iterator<Node> iterator(final Node obj) { return obj.children.iterator(); }
+  };
+
+  private static final class Node {
+    private List<Node> children = Collections.emptyList();
+
+    Node add(final Node child) {
+      if (children.isEmpty()) children = new ArrayList<Node>(1);
+      children.add(child);
+      return child;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RepositoryBenchmark} measures throughput and hit ratio of {@link Repository} and {@link BoundedRepository}
+ * with keys in zipfian distribution.
+ * <p/>
+ * Hit ratio is hits / (hits + misses) of the secondary results.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+  private static final int SAMPLES = 1 << 20;
+  private static final ThreadLocal<Counters> COUNTERS = new ThreadLocal<Counters>();
+
+  @Param({"unbounded", "lru", "tinyLfu"})
+  public String eviction;
+
+  @Param({"10000"})
+  public int capacity;
+
+  @Param({"1000000"})
+  public int items;
+
+  @Param({"0.99"})
+  public double exponent;
+
+  private Integer[] keys;
+  private Repository<Integer, Integer> unbounded;
+  private BoundedRepository<Integer, Integer> bounded;
+
+  @Setup
+  public void setUp() {
+    final int[] sampled = Zipfian.sample(items, exponent, SAMPLES, 7L);
+    keys = new Integer[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) keys[i] = sampled[i];
+
+    final Repository.Factory<Integer, Integer> factory = new Repository.Factory<Integer, Integer>() {
+      @Override
+      public Integer newInstance(Integer key) {
+        COUNTERS.get().misses++;
+        return key;
+      }
+    };
+
+    if ("unbounded".equals(eviction)) unbounded = new Repository<Integer, Integer>(factory) {};
+    else if ("lru".equals(eviction)) bounded = new BoundedRepository<Integer, Integer>(factory, Evictions.<Integer>lru(capacity));
+    else bounded = new BoundedRepository<Integer, Integer>(factory, Evictions.<Integer>tinyLfu(capacity));
+  }
+
+  @Benchmark
+  public Integer getOrCreateIfNotExist(final Counters counters) {
+    final Integer key = keys[counters.next++ & (SAMPLES - 1)];
+    final long misses = counters.misses;
+    final Integer value = unbounded != null
+        ? unbounded.uncheckedGetOrCreateIfNoExist(key)
+        : bounded.uncheckedGetOrCreateIfNoExist(key);
+    if (counters.misses == misses) counters.hits++;
+    return value;
+  }
+
+  /** {@link Counters} of hits and misses per thread. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Counters {
+    public long hits;
+    public long misses;
+
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      hits = 0L;
+      misses = 0L;
+      next = (int) (Thread.currentThread().getId() * 0x9E3779B9L); // far apart from other threads
+      COUNTERS.set(this);
+    }
+  }
+}
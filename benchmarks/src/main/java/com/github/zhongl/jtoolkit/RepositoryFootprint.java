@@ -0,0 +1,92 @@
+package com.github.zhongl.jtoolkit;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link RepositoryFootprint} loads entries into {@link Repository} or {@link OffHeapRepository}, then reports heap
+ * footprint and the pause of a full GC, which is hard to measure in JMH.
+ * <p/>
+ * Usage: java -Xmx3g -cp benchmarks.jar com.github.zhongl.jtoolkit.RepositoryFootprint (heap|offheap) [entries]
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class RepositoryFootprint {
+  private RepositoryFootprint() {}
+
+  public static void main(String... args) throws Exception {
+    final boolean offHeap = "offheap".equals(args[0]);
+    final int entries = args.length > 1 ? Integer.parseInt(args[1]) : 10000000;
+
+    final Repository.Factory<Integer, String> factory = new Repository.Factory<Integer, String>() {
+      @Override
+      public String newInstance(Integer key) { return "value-" + key; }
+    };
+
+    final long begin = System.nanoTime();
+    final Object repository;
+    if (offHeap) {
+      final OffHeapRepository<Integer, String> r = new OffHeapRepository<Integer, String>(
+          factory, INT, STRING, OffHeapRepository.Storage.direct(), 64 << 20, entries);
+      for (int i = 0; i < entries; i++) r.getOrCreateIfNotExist(i);
+      System.out.printf("off-heap bytes: %,d%n", r.usedBytes());
+      repository = r;
+    } else {
+      final Repository<Integer, String> r = new Repository<Integer, String>(factory) {};
+      for (int i = 0; i < entries; i++) r.getOrCreateIfNotExist(i);
+      repository = r;
+    }
+    System.out.printf("load %,d entries: %,d ms, gc %,d times %,d ms%n", entries,
+                      (System.nanoTime() - begin) / 1000000, gcCount(), gcTime());
+
+    final long pause = fullGc();
+    final Runtime runtime = Runtime.getRuntime();
+    System.out.printf("heap used: %,d bytes, full gc pause: %,d ms%n",
+                      runtime.totalMemory() - runtime.freeMemory(), pause);
+    System.out.println(repository.hashCode() != 0); // keep repository reachable.
+  }
+
+  private static long fullGc() {
+    System.gc();
+    final long begin = System.nanoTime();
+    System.gc();
+    return (System.nanoTime() - begin) / 1000000;
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) count += bean.getCollectionCount();
+    return count;
+  }
+
+  private static long gcTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) time += bean.getCollectionTime();
+    return time;
+  }
+
+  private static final OffHeapRepository.Serializer<Integer> INT = new OffHeapRepository.Serializer<Integer>() {
+    @Override
+    public int sizeOf(Integer value) { return 4; }
+
+    @Override
+    public void write(Integer value, ByteBuffer buffer) { buffer.putInt(value); }
+
+    @Override
+    public Integer read(ByteBuffer buffer) { return buffer.getInt(); }
+  };
+
+  private static final OffHeapRepository.Serializer<String> STRING = new OffHeapRepository.Serializer<String>() {
+    @Override
+    public int sizeOf(String value) { return value.length(); }
+
+    @Override
+    public void write(String value, ByteBuffer buffer) {
+      for (int i = 0; i < value.length(); i++) buffer.put((byte) value.charAt(i)); // ascii only
+    }
+
+    @Override
+    public String read(ByteBuffer buffer) { return Bytes.toString(buffer); }
+  };
+}
@@ -0,0 +1,56 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RingBufferWriterBenchmark} measures throughput of many threads appending lines to {@link RingBufferWriter},
+ * against a {@link StringWriter} shared by locking.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class RingBufferWriterBenchmark {
+
+  @Param({"65536"})
+  public int capacity;
+
+  @Param({"ascii", "utf8"})
+  public String line;
+
+  private String text;
+  private RingBufferWriter ring;
+  private StringWriter locked;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    text = "ascii".equals(line)
+        ? "2012-01-01 00:00:00.000 INFO  [main] com.github.zhongl.jtoolkit - ring buffer line\n"
+        : "2012-01-01 00:00:00.000 INFO  [main] com.github.zhongl.jtoolkit - 环形缓冲区日志行\n";
+    ring = new RingBufferWriter(capacity);
+    locked = new StringWriter();
+  }
+
+  @Benchmark
+  public void ring() throws IOException {
+    ring.write(text);
+  }
+
+  @Benchmark
+  public void locked() {
+    synchronized (locked) {
+      final StringBuffer buffer = locked.getBuffer();
+      if (buffer.length() > capacity) buffer.setLength(0); // keep it bounded like a ring
+      locked.write(text);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SystemClockBenchmark} compares cost of reading {@link SystemClock#shared(long)} with the raw system calls by all
+ * threads of machine, run it with <code>-t 1</code>, <code>-t 2</code>, ... to see how reads scale with cores.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class SystemClockBenchmark {
+
+  private SystemClock clock;
+
+  @Setup
+  public void setUp() {
+    clock = new SystemClock(1L);
+  }
+
+  @TearDown
+  public void tearDown() {
+    clock.stop();
+  }
+
+  @Benchmark
+  public long now() { return clock.now(); }
+
+  @Benchmark
+  public long nanoTime() { return clock.nanoTime(); }
+
+  @Benchmark
+  public long nowMicros() { return clock.nowMicros(); }
+
+  @Benchmark
+  public long currentTimeMillis() { return System.currentTimeMillis(); }
+
+  @Benchmark
+  public long systemNanoTime() { return System.nanoTime(); }
+}
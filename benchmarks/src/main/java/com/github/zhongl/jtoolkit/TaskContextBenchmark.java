@@ -0,0 +1,48 @@
+package com.github.zhongl.jtoolkit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TaskContextBenchmark} compares the cost of running a task wrapped by {@link NamedThreadRunnable} with
+ * {@link ContextualRunnable}, run with <code>-prof gc</code> to see allocation.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskContextBenchmark {
+  private Runnable task;
+  private Runnable named;
+  private Runnable contextual;
+  private Runnable contextualWithMdc;
+
+  @Setup
+  public void setUp(final Blackhole blackhole) {
+    task = new Runnable() {
+      @Override
+      public void run() { blackhole.consume(TaskContext.startedAt()); }
+    };
+    named = NamedThreadRunnable.named(task, "task");
+    contextual = ContextualRunnable.contextual(task, TaskContext.named("task").withTraceId("trace"));
+    contextualWithMdc = ContextualRunnable.contextual(task, TaskContext.named("task").withMdc("request", "r"));
+  }
+
+  @Benchmark
+  public void direct() { task.run(); }
+
+  @Benchmark
+  public void namedThreadRunnable() { named.run(); }
+
+  @Benchmark
+  public void contextualRunnable() { contextual.run(); }
+
+  @Benchmark
+  public void contextualRunnableWithMdc() { contextualWithMdc.run(); }
+}
@@ -0,0 +1,36 @@
+package com.github.zhongl.jtoolkit;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * {@link Zipfian} samples keys in zipfian distribution, the smaller the key is, the more frequent it is.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+final class Zipfian {
+  private Zipfian() {}
+
+  /**
+   * @param items    number of distinct keys, from 0 to items - 1.
+   * @param exponent skew of distribution, 0 means uniform.
+   * @param samples  length of result.
+   * @param seed
+   *
+   * @return sampled keys.
+   */
+  static int[] sample(final int items, final double exponent, final int samples, final long seed) {
+    final double[] cdf = new double[items];
+    double sum = 0d;
+    for (int i = 0; i < items; i++) cdf[i] = sum += 1d / Math.pow(i + 1, exponent);
+    for (int i = 0; i < items; i++) cdf[i] /= sum;
+
+    final Random random = new Random(seed);
+    final int[] keys = new int[samples];
+    for (int i = 0; i < samples; i++) {
+      final int index = Arrays.binarySearch(cdf, random.nextDouble());
+      keys[i] = Math.min(items - 1, index < 0 ? -index - 1 : index);
+    }
+    return keys;
+  }
+}
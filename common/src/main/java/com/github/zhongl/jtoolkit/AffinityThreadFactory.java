@@ -0,0 +1,235 @@
+package com.github.zhongl.jtoolkit;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AffinityThreadFactory} creates threads as {@link DebugableThreadFactory}, and pins each of them to cpus given
+ * by {@link Policy} once it starts, by <code>sched_setaffinity</code> of Linux.
+ * <p/>
+ * Threads are assigned cpu sets of policy in turn of creation. Where affinity is not supported, or failed to set, it
+ * would be logged and the thread runs unpinned.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class AffinityThreadFactory implements ThreadFactory {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AffinityThreadFactory.class);
+
+  public AffinityThreadFactory(final String name, final Policy policy) {
+    this(name, false, policy);
+  }
+
+  public AffinityThreadFactory(final String name, final boolean daemon, final Policy policy) {
+    this.delegate = new DebugableThreadFactory(name, daemon);
+    this.policy = policy;
+  }
+
+  @Override
+  public Thread newThread(final Runnable r) {
+    final BitSet cpus = policy.cpusOf(count.getAndIncrement());
+    return delegate.newThread(new Runnable() {
+      @Override
+      public void run() {
+        pin(cpus);
+        r.run();
+      }
+    });
+  }
+
+  /**
+   * Pin current thread to cpus.
+   *
+   * @return false if it is not supported or failed.
+   */
+  public static boolean pin(final BitSet cpus) {
+    if (Affinity.LIB == null) {
+      LOGGER.warn("Affinity is not supported, {} runs unpinned.", Thread.currentThread().getName());
+      return false;
+    }
+    final long[] mask = new long[(cpus.length() + 63) / 64];
+    for (int cpu = cpus.nextSetBit(0); cpu >= 0; cpu = cpus.nextSetBit(cpu + 1)) mask[cpu / 64] |= 1L << (cpu % 64);
+    try {
+      Affinity.LIB.sched_setaffinity(0, new NativeLong(mask.length * 8L), mask);
+      return true;
+    } catch (LastErrorException e) {
+      LOGGER.warn("Failed to pin " + Thread.currentThread().getName() + " to cpus " + cpus, e);
+      return false;
+    }
+  }
+
+  private final DebugableThreadFactory delegate;
+  private final Policy policy;
+  private final AtomicInteger count = new AtomicInteger();
+
+  /** {@link Policy} is cpu sets to assign to threads in turn. */
+  public static final class Policy {
+    private final List<BitSet> sets;
+
+    private Policy(final List<BitSet> sets) {
+      if (sets.isEmpty()) throw new IllegalStateException("No cpu for the policy.");
+      this.sets = sets;
+    }
+
+    /** One thread for each physical core, hyper threads of a core are not shared. */
+    public static Policy onePerCore() { return Topology.SYSTEM.onePerCore(); }
+
+    /** One thread for each isolated cpu, which is isolated from scheduler by kernel parameter isolcpus. */
+    public static Policy isolated() { return Topology.SYSTEM.isolated(); }
+
+    /** One thread for each cpu, in turn of sockets, so that adjacent threads are on different sockets. */
+    public static Policy acrossSockets() { return Topology.SYSTEM.acrossSockets(); }
+
+    /** All threads share cpus of the NUMA node. */
+    public static Policy numaNode(final int node) { return Topology.SYSTEM.numaNode(node); }
+
+    /** One thread for each cpu of list, like <code>0-3,8</code>. */
+    public static Policy cpus(final String list) { return eachOf(parseCpuList(list)); }
+
+    /**
+     * @param policy like <code>one-per-core</code>, <code>isolated</code>, <code>across-sockets</code>,
+     *               <code>numa-node:1</code> or <code>cpus:0-3,8</code>.
+     * @throws IllegalArgumentException if it is unknown.
+     */
+    public static Policy parse(final String policy) {
+      if ("one-per-core".equals(policy)) return onePerCore();
+      if ("isolated".equals(policy)) return isolated();
+      if ("across-sockets".equals(policy)) return acrossSockets();
+      if (policy.startsWith("numa-node:")) return numaNode(Integer.parseInt(policy.substring("numa-node:".length())));
+      if (policy.startsWith("cpus:")) return cpus(policy.substring("cpus:".length()));
+      throw new IllegalArgumentException("Unknown affinity policy " + policy);
+    }
+
+    /** @return cpus of the i-th thread. */
+    public BitSet cpusOf(final int i) { return (BitSet) sets.get(i % sets.size()).clone(); }
+
+    /** @return number of cpu sets, beyond which threads would share them. */
+    public int size() { return sets.size(); }
+
+    @Override
+    public String toString() { return "Policy" + sets; }
+
+    private static Policy eachOf(final BitSet cpus) {
+      final List<BitSet> sets = new ArrayList<BitSet>();
+      for (int cpu = cpus.nextSetBit(0); cpu >= 0; cpu = cpus.nextSetBit(cpu + 1)) sets.add(single(cpu));
+      return new Policy(sets);
+    }
+  }
+
+  /** {@link Topology} of cpus read from sysfs. */
+  static final class Topology {
+    static final Topology SYSTEM = new Topology(new File("/sys/devices/system"));
+
+    private final File root;
+
+    Topology(final File root) {this.root = root;}
+
+    Policy onePerCore() {
+      final Map<String, Integer> cores = new LinkedHashMap<String, Integer>(); // first cpu of each core
+      final BitSet online = online();
+      for (int cpu = online.nextSetBit(0); cpu >= 0; cpu = online.nextSetBit(cpu + 1)) {
+        final String core = read("cpu/cpu" + cpu + "/topology/physical_package_id") + '/'
+            + read("cpu/cpu" + cpu + "/topology/core_id");
+        if (!cores.containsKey(core)) cores.put(core, cpu);
+      }
+      final List<BitSet> sets = new ArrayList<BitSet>();
+      for (final Integer cpu : cores.values()) sets.add(single(cpu));
+      return new Policy(sets);
+    }
+
+    Policy isolated() {
+      final String isolated = read("cpu/isolated");
+      return Policy.eachOf(isolated.isEmpty() ? new BitSet() : parseCpuList(isolated));
+    }
+
+    Policy acrossSockets() {
+      final Map<Integer, List<Integer>> sockets = new TreeMap<Integer, List<Integer>>();
+      final BitSet online = online();
+      for (int cpu = online.nextSetBit(0); cpu >= 0; cpu = online.nextSetBit(cpu + 1)) {
+        final Integer socket = Integer.valueOf(read("cpu/cpu" + cpu + "/topology/physical_package_id"));
+        if (!sockets.containsKey(socket)) sockets.put(socket, new ArrayList<Integer>());
+        sockets.get(socket).add(cpu);
+      }
+      final List<BitSet> sets = new ArrayList<BitSet>();
+      for (int i = 0; sets.size() < online.cardinality(); i++) {
+        for (final List<Integer> cpus : sockets.values()) if (i < cpus.size()) sets.add(single(cpus.get(i)));
+      }
+      return new Policy(sets);
+    }
+
+    Policy numaNode(final int node) {
+      final File cpulist = new File(root, "node/node" + node + "/cpulist");
+      if (!cpulist.exists()) throw new IllegalArgumentException("No NUMA node " + node);
+      return new Policy(Collections.singletonList(parseCpuList(read("node/node" + node + "/cpulist"))));
+    }
+
+    private BitSet online() { return parseCpuList(read("cpu/online")); }
+
+    private String read(final String path) {
+      try {
+        final BufferedReader reader = new BufferedReader(new FileReader(new File(root, path)));
+        try {
+          final String line = reader.readLine();
+          return line == null ? "" : line.trim();
+        } finally {
+          reader.close();
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to read topology of cpus.", e);
+      }
+    }
+  }
+
+  /** @param list like <code>0-3,8,10-11</code>. */
+  static BitSet parseCpuList(final String list) {
+    final BitSet cpus = new BitSet();
+    for (final String range : list.split(",")) {
+      final String trimmed = range.trim();
+      if (trimmed.isEmpty()) continue;
+      final int dash = trimmed.indexOf('-');
+      if (dash < 0) cpus.set(Integer.parseInt(trimmed));
+      else cpus.set(Integer.parseInt(trimmed.substring(0, dash)), Integer.parseInt(trimmed.substring(dash + 1)) + 1);
+    }
+    return cpus;
+  }
+
+  private static BitSet single(final int cpu) {
+    final BitSet set = new BitSet();
+    set.set(cpu);
+    return set;
+  }
+
+  interface Affinity extends Library {
+    Affinity LIB = load();
+
+    /** pid_t is int, size_t is as wide as long of C on Linux. */
+    int sched_setaffinity(int pid, NativeLong size, long[] mask) throws LastErrorException;
+  }
+
+  private static Affinity load() {
+    if (!System.getProperty("os.name").toLowerCase().contains("linux")) return null;
+    try {
+      return (Affinity) Native.loadLibrary("c", Affinity.class);
+    } catch (Throwable t) {
+      LOGGER.warn("Failed to load libc for affinity.", t);
+      return null;
+    }
+  }
+}
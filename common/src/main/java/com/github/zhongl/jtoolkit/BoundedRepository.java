@@ -0,0 +1,307 @@
+package com.github.zhongl.jtoolkit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link BoundedRepository} creates values once for concurrent callers as {@link Repository} does, but its entries are
+ * bounded by {@link Eviction}, and can be expired after write or access.
+ * <p/>
+ * Hits are recorded into striped lossy buffers and replayed to {@link Eviction} in batch, so most of them would not
+ * contend for the lock, which is only held on insertion and removal.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public class BoundedRepository<K, V> {
+  private static final int READ_BUFFER_SIZE = 64;
+  private static final int DRAIN_THRESHOLD = 32;
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicIntegerFieldUpdater<BoundedRepository.Entry> NOTIFIED =
+      AtomicIntegerFieldUpdater.newUpdater(BoundedRepository.Entry.class, "notified");
+
+  public BoundedRepository(final Repository.Factory<K, V> factory, final Eviction<K> eviction) {
+    this(factory, eviction, Expiry.never(), null);
+  }
+
+  /**
+   * @param factory
+   * @param eviction
+   * @param expiry
+   * @param listener would be notified after a created value was removed, null means no need.
+   */
+  @SuppressWarnings("unchecked")
+  public BoundedRepository(final Repository.Factory<K, V> factory, final Eviction<K> eviction, final Expiry expiry,
+                           final RemovalListener<K, V> listener) {
+    this.factory = factory;
+    this.eviction = eviction;
+    this.expiry = expiry;
+    this.listener = listener;
+    int stripes = 1;
+    while (stripes < Runtime.getRuntime().availableProcessors()) stripes <<= 1;
+    readBuffers = (ReadBuffer<K>[]) new ReadBuffer<?>[stripes];
+    for (int i = 0; i < stripes; i++) readBuffers[i] = new ReadBuffer<K>();
+  }
+
+  /**
+   * @param key
+   * @return
+   * @throws ExecutionException   if lazy new instance has error.
+   * @throws InterruptedException if current thread is interrupted during newing instance.
+   * @see Repository#getOrCreateIfNotExist(Object)
+   */
+  public final V getOrCreateIfNotExist(final K key) throws InterruptedException, ExecutionException {
+    final long now = expiry.enabled() ? System.nanoTime() : 0L;
+    final Entry entry = map.get(key);
+    if (entry != null) {
+      if (!expiry.isExpired(entry, now)) return hit(entry, now).get();
+      remove(entry, Cause.EXPIRED);
+    }
+
+    final Entry created = new Entry(key, now);
+    final Entry existed = map.putIfAbsent(key, created);
+    if (existed != null) return hit(existed, now).get();
+
+    inserted(created);
+    created.run();
+    return created.get();
+  }
+
+  /** @see Repository#uncheckedGetOrCreateIfNoExist(Object) */
+  public final V uncheckedGetOrCreateIfNoExist(final K key) {
+    try {
+      return getOrCreateIfNotExist(key);
+    } catch (final InterruptedException e) {
+      throw new RuntimeException(e);
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new RuntimeException(cause);
+    }
+  }
+
+  /** Remove the entry of key if it exists. */
+  public final void invalidate(final K key) {
+    final Entry entry = map.get(key);
+    if (entry != null) remove(entry, Cause.EXPLICIT);
+  }
+
+  /** Remove all expired entries, it is supposed to be scheduled periodically if entries may never be hit again. */
+  public final void cleanUp() {
+    if (!expiry.enabled()) return;
+    final long now = System.nanoTime();
+    for (final Entry entry : map.values()) if (expiry.isExpired(entry, now)) remove(entry, Cause.EXPIRED);
+  }
+
+  /** @return number of entries, including those are creating. */
+  public final int size() { return map.size(); }
+
+  private Entry hit(final Entry entry, final long now) {
+    if (expiry.afterAccess > 0L) entry.accessedAt = now;
+    final ReadBuffer<K> buffer = readBuffers[((int) Thread.currentThread().getId()) & (readBuffers.length - 1)];
+    if (buffer.record(entry.key) && lock.tryLock()) {
+      try {
+        drainReads();
+      } finally {
+        lock.unlock();
+      }
+    }
+    return entry;
+  }
+
+  private void drainReads() {
+    for (final ReadBuffer<K> buffer : readBuffers) buffer.drainTo(eviction);
+  }
+
+  private void inserted(final Entry created) {
+    Map<K, Entry> evicted = null;
+    lock.lock();
+    try {
+      if (map.get(created.key) != created) return; // removed before inserted.
+      created.inserted = true;
+      drainReads();
+      eviction.onInsert(created.key);
+      for (K victim = eviction.evict(); victim != null; victim = eviction.evict()) {
+        final Entry entry = map.remove(victim);
+        if (entry == null) continue;
+        if (evicted == null) evicted = new HashMap<K, Entry>();
+        evicted.put(victim, entry);
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (evicted != null) for (final Entry entry : evicted.values()) entry.removed(Cause.SIZE);
+  }
+
+  private void remove(final Entry entry, final Cause cause) {
+    lock.lock();
+    try {
+      if (!map.remove(entry.key, entry)) return;
+      if (entry.inserted) eviction.onRemove(entry.key);
+    } finally {
+      lock.unlock();
+    }
+    entry.removed(cause);
+  }
+
+  private final Repository.Factory<K, V> factory;
+  private final Eviction<K> eviction;
+  private final Expiry expiry;
+  private final RemovalListener<K, V> listener;
+  private final ReadBuffer<K>[] readBuffers;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final ConcurrentHashMap<K, Entry> map = new ConcurrentHashMap<K, Entry>();
+
+  /** {@link Cause} of removal. */
+  public static enum Cause {
+    /** Evicted by {@link Eviction}. */
+    SIZE,
+    /** Expired by {@link Expiry}. */
+    EXPIRED,
+    /** Invalidated by user. */
+    EXPLICIT
+  }
+
+  /** {@link RemovalListener} is notified after created value was removed, it is a chance to release resource. */
+  public static interface RemovalListener<K, V> {
+    void onRemoval(K key, V value, Cause cause);
+  }
+
+  /** {@link Expiry} */
+  public static final class Expiry {
+    private static final Expiry NEVER = new Expiry(0L, 0L);
+
+    private final long afterWrite;
+    private final long afterAccess;
+
+    private Expiry(final long afterWrite, final long afterAccess) {
+      this.afterWrite = afterWrite;
+      this.afterAccess = afterAccess;
+    }
+
+    public static Expiry never() { return NEVER; }
+
+    /** @return expiry of time-to-live. */
+    public static Expiry afterWrite(final long duration, final TimeUnit unit) {
+      return new Expiry(positive(unit.toNanos(duration)), 0L);
+    }
+
+    /** @return expiry of time-to-idle. */
+    public static Expiry afterAccess(final long duration, final TimeUnit unit) {
+      return new Expiry(0L, positive(unit.toNanos(duration)));
+    }
+
+    public Expiry andAfterWrite(final long duration, final TimeUnit unit) {
+      return new Expiry(positive(unit.toNanos(duration)), afterAccess);
+    }
+
+    public Expiry andAfterAccess(final long duration, final TimeUnit unit) {
+      return new Expiry(afterWrite, positive(unit.toNanos(duration)));
+    }
+
+    boolean enabled() { return afterWrite > 0L || afterAccess > 0L; }
+
+    /** Entry in creating would never be expired. */
+    boolean isExpired(final BoundedRepository<?, ?>.Entry entry, final long now) {
+      if (!enabled() || !entry.isDone()) return false;
+      if (afterWrite > 0L && now - entry.writtenAt >= afterWrite) return true;
+      return afterAccess > 0L && now - entry.accessedAt >= afterAccess;
+    }
+
+    private static long positive(final long nanos) {
+      if (nanos <= 0L) throw new IllegalArgumentException("Duration should be greater than 0.");
+      return nanos;
+    }
+  }
+
+  /** {@link Entry} is written when its value is created, so time of creation is not counted in expiry. */
+  private final class Entry extends FutureTask<V> {
+    private final K key;
+
+    private volatile long writtenAt;
+    private volatile long accessedAt;
+    private volatile Cause removal;
+    volatile int notified; // updated by NOTIFIED
+    private boolean inserted; // guarded by lock, eviction knows it only if it was inserted.
+
+    private Entry(final K key, final long now) {
+      super(new Callable<V>() {
+        @Override
+        public V call() throws Exception {
+          return factory.newInstance(key);
+        }
+      });
+      this.key = key;
+      this.accessedAt = now;
+    }
+
+    @Override
+    protected void set(final V v) {
+      if (expiry.enabled()) written();
+      super.set(v);
+    }
+
+    @Override
+    protected void setException(final Throwable t) {
+      if (expiry.enabled()) written();
+      super.setException(t);
+    }
+
+    private void written() {
+      final long now = System.nanoTime();
+      writtenAt = now;
+      accessedAt = now;
+    }
+
+    /** Entry removed in creating would be notified after it is done. */
+    private void removed(final Cause cause) {
+      removal = cause;
+      if (isDone()) notifyListener();
+    }
+
+    @Override
+    protected void done() {
+      if (removal != null) notifyListener();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyListener() {
+      if (listener == null || !NOTIFIED.compareAndSet(this, 0, 1)) return;
+      try {
+        listener.onRemoval(key, get(), removal);
+      } catch (ExecutionException e) {
+        // nothing to release for failed creation.
+      } catch (CancellationException e) {
+        // nothing to release for cancelled creation.
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** {@link ReadBuffer} is lossy, slots would be overwritten if it was not drained in time. */
+  private static final class ReadBuffer<K> {
+    private final AtomicReferenceArray<K> slots = new AtomicReferenceArray<K>(READ_BUFFER_SIZE);
+    private final AtomicLong writes = new AtomicLong();
+
+    /** @return true means it is time to drain. */
+    boolean record(final K key) {
+      final long index = writes.getAndIncrement();
+      slots.lazySet((int) index & (READ_BUFFER_SIZE - 1), key);
+      return (index & (DRAIN_THRESHOLD - 1)) == DRAIN_THRESHOLD - 1;
+    }
+
+    void drainTo(final Eviction<K> eviction) {
+      for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+        final K key = slots.getAndSet(i, null);
+        if (key != null) eviction.onAccess(key);
+      }
+    }
+  }
+}
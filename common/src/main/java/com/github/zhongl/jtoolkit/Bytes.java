@@ -1,10 +1,16 @@
 package com.github.zhongl.jtoolkit;
 
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * {@link Bytes}
+ * <p/>
+ * Methods of encoding into or decoding from a {@link ByteBuffer} work on buffer given by caller, heap or direct, and
+ * move its position as {@link ByteBuffer#put(byte)} and {@link ByteBuffer#get()} do.
  *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  * @created 2010-11-8
@@ -14,7 +20,7 @@ public final class Bytes {
   }
 
   public static ByteBuffer toBuffer(final int i) {
-    return (ByteBuffer) ByteBuffer.wrap(new byte[4]).putInt(i).flip();
+    return ByteBuffer.wrap(toBytes(i));
   }
 
   public static final ByteBuffer toBuffer(final String value) {
@@ -22,7 +28,17 @@ public final class Bytes {
   }
 
   public static final byte[] toBytes(final int value) {
-    return ByteBuffer.wrap(new byte[4]).putInt(value).array();
+    return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+  }
+
+  public static final byte[] toBytes(final long value) {
+    final byte[] bs = new byte[8];
+    for (int i = 7; i >= 0; i--) bs[7 - i] = (byte) (value >>> (i << 3));
+    return bs;
+  }
+
+  public static final byte[] toBytes(final short value) {
+    return new byte[]{(byte) (value >>> 8), (byte) value};
   }
 
   public static final byte[] toBytes(final String value) {
@@ -30,20 +46,249 @@ public final class Bytes {
   }
 
   public static final int toInt(final byte[] bs) {
-    return ByteBuffer.wrap(bs).getInt();
+    return (bs[0] & 0xff) << 24 | (bs[1] & 0xff) << 16 | (bs[2] & 0xff) << 8 | (bs[3] & 0xff);
+  }
+
+  public static final long toLong(final byte[] bs) {
+    long value = 0L;
+    for (int i = 0; i < 8; i++) value = value << 8 | (bs[i] & 0xff);
+    return value;
+  }
+
+  public static final short toShort(final byte[] bs) {
+    return (short) ((bs[0] & 0xff) << 8 | (bs[1] & 0xff));
   }
 
   public static final String toString(final byte[] bs) {
     return new String(bs, UTF8);
   }
 
+  /**
+   * @return string decoded from position to limit of a duplicate, so buffer is never touched and it is safe for
+   *         concurrent readers of a shared buffer.
+   */
   public static String toString(final ByteBuffer buffer) {
-    final byte[] array = new byte[buffer.remaining()];
-    buffer.asReadOnlyBuffer().get(array);
-    return toString(array);
+    return decode(buffer.duplicate(), buffer.remaining());
+  }
+
+  /**
+   * Encode value in UTF-8 into buffer, without intermediate array but a cached one for direct buffer, and unpaired
+   * surrogate would be '?'.
+   *
+   * @return number of bytes put.
+   * @throws BufferOverflowException if there is not enough remaining, and position would not be moved.
+   */
+  public static int encode(final CharSequence value, final ByteBuffer buffer) {
+    final int start = buffer.position();
+    final int remaining = buffer.remaining();
+    if (buffer.hasArray()) {
+      final int size = encode(value, buffer.array(), buffer.arrayOffset() + start, remaining);
+      if (size < 0) throw new BufferOverflowException();
+      buffer.position(start + size);
+      return size;
+    }
+    final byte[] scratch = scratch(Math.min(value.length() * 3, remaining)); // one bulk put is cheaper for direct.
+    final int size = encode(value, scratch, 0, Math.min(scratch.length, remaining));
+    if (size < 0) throw new BufferOverflowException();
+    buffer.put(scratch, 0, size);
+    return size;
+  }
+
+  /** @return bytes of value in UTF-8, for sizing buffer before {@link #encode(CharSequence, ByteBuffer)}. */
+  public static int sizeOf(final CharSequence value) {
+    final int length = value.length();
+    int size = length;
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c < 0x80) continue;
+      if (c < 0x800) size += 1;
+      else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+        size += 2;
+        i++;
+      } else if (Character.isSurrogate(c)) continue; // replaced by '?'
+      else size += 2;
+    }
+    return size;
+  }
+
+  /**
+   * Decode length bytes from buffer in UTF-8, without intermediate buffer but cached arrays.
+   *
+   * @throws BufferUnderflowException if there is not enough remaining.
+   */
+  public static String decode(final ByteBuffer buffer, final int length) {
+    if (buffer.remaining() < length) throw new BufferUnderflowException();
+    final byte[] array;
+    final int offset;
+    if (buffer.hasArray()) {
+      array = buffer.array();
+      offset = buffer.arrayOffset() + buffer.position();
+      buffer.position(buffer.position() + length);
+    } else {
+      array = scratch(length);
+      offset = 0;
+      buffer.get(array, 0, length);
+    }
+    for (int i = offset; i < offset + length; i++) {
+      if (array[i] < 0) return decodeUtf8(array, offset, length);
+    }
+    return new String(array, offset, length, StandardCharsets.ISO_8859_1); // ascii fast path, no decoding.
+  }
+
+  /** Decode into a cached char array, instead of a larger one trimmed by {@link String}, malformed is left to it. */
+  private static String decodeUtf8(final byte[] bytes, final int offset, final int length) {
+    char[] chars = CHARS.get();
+    if (chars.length < length) CHARS.set(chars = new char[Integer.highestOneBit(length) << 1]);
+    int count = 0;
+    final int end = offset + length;
+    for (int i = offset; i < end; ) {
+      final int b = bytes[i++];
+      if (b >= 0) {
+        chars[count++] = (char) b;
+      } else if ((b & 0xE0) == 0xC0 && i < end && isContinuation(bytes[i]) && (b & 0x1E) != 0) {
+        chars[count++] = (char) (((b & 0x1F) << 6) | (bytes[i++] & 0x3F));
+      } else if ((b & 0xF0) == 0xE0 && i + 1 < end && isContinuation(bytes[i]) && isContinuation(bytes[i + 1])) {
+        final char c = (char) (((b & 0x0F) << 12) | ((bytes[i++] & 0x3F) << 6) | (bytes[i++] & 0x3F));
+        if (c < 0x800 || Character.isSurrogate(c)) return new String(bytes, offset, length, UTF8);
+        chars[count++] = c;
+      } else if ((b & 0xF8) == 0xF0 && i + 2 < end && isContinuation(bytes[i]) && isContinuation(bytes[i + 1])
+          && isContinuation(bytes[i + 2])) {
+        final int code = ((b & 0x07) << 18) | ((bytes[i++] & 0x3F) << 12) | ((bytes[i++] & 0x3F) << 6)
+            | (bytes[i++] & 0x3F);
+        if (code < 0x10000 || code > Character.MAX_CODE_POINT) return new String(bytes, offset, length, UTF8);
+        chars[count++] = Character.highSurrogate(code);
+        chars[count++] = Character.lowSurrogate(code);
+      } else {
+        return new String(bytes, offset, length, UTF8);
+      }
+    }
+    return new String(chars, 0, count);
+  }
+
+  /** @return bytes encoded, or -1 if it is over limit. */
+  private static int encode(final CharSequence value, final byte[] bytes, final int offset, final int limit) {
+    final int length = value.length();
+    final int end = offset + limit;
+    int i = 0;
+    int p = offset;
+    for (final int ascii = Math.min(length, limit); i < ascii; i++, p++) { // ascii fast path
+      final char c = value.charAt(i);
+      if (c >= 0x80) break;
+      bytes[p] = (byte) c;
+    }
+    for (; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c < 0x80) {
+        if (p >= end) return -1;
+        bytes[p++] = (byte) c;
+      } else if (c < 0x800) {
+        if (p + 1 >= end) return -1;
+        bytes[p++] = (byte) (0xC0 | (c >> 6));
+        bytes[p++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+        if (p + 3 >= end) return -1;
+        final int code = Character.toCodePoint(c, value.charAt(++i));
+        bytes[p++] = (byte) (0xF0 | (code >> 18));
+        bytes[p++] = (byte) (0x80 | ((code >> 12) & 0x3F));
+        bytes[p++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+        bytes[p++] = (byte) (0x80 | (code & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        if (p >= end) return -1;
+        bytes[p++] = '?';
+      } else {
+        if (p + 2 >= end) return -1;
+        bytes[p++] = (byte) (0xE0 | (c >> 12));
+        bytes[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        bytes[p++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    return p - offset;
+  }
+
+  private static boolean isContinuation(final byte b) { return (b & 0xC0) == 0x80; }
+
+  /** Put value as varint of 1 to 5 bytes, 7 bits a byte from lowest, negative one would always take 5. */
+  public static void putVarint(final ByteBuffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /** @throws IllegalArgumentException if it is malformed. */
+  public static int getVarint(final ByteBuffer buffer) {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      final byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) return value;
+    }
+    throw new IllegalArgumentException("Malformed varint.");
+  }
+
+  /** Put value as varint of 1 to 10 bytes. */
+  public static void putVarlong(final ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0L) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /** @throws IllegalArgumentException if it is malformed. */
+  public static long getVarlong(final ByteBuffer buffer) {
+    long value = 0L;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) return value;
+    }
+    throw new IllegalArgumentException("Malformed varlong.");
+  }
+
+  public static int sizeOfVarint(final int value) {
+    return value == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(value)) / 7;
+  }
+
+  public static int sizeOfVarlong(final long value) {
+    return value == 0L ? 1 : (70 - Long.numberOfLeadingZeros(value)) / 7;
+  }
+
+  /** @return value mapped as 0, -1, 1, -2 to 0, 1, 2, 3, so small negative one would be a short varint. */
+  public static int zigzag(final int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  public static int unzigzag(final int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  public static long zigzag(final long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  public static long unzigzag(final long value) {
+    return (value >>> 1) ^ -(value & 1L);
+  }
+
+  private static byte[] scratch(final int length) {
+    byte[] scratch = SCRATCH.get();
+    if (scratch.length < length) SCRATCH.set(scratch = new byte[Integer.highestOneBit(length) << 1]);
+    return scratch;
   }
 
   private static final Charset UTF8 = Charset.forName("UTF-8");
 
+  private static final ThreadLocal<char[]> CHARS = new ThreadLocal<char[]>() {
+    @Override
+    protected char[] initialValue() { return new char[256]; }
+  };
+
+  private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() { return new byte[256]; }
+  };
+
   public static final byte[] NULL = new byte[0];
 }
@@ -3,6 +3,7 @@ package com.github.zhongl.jtoolkit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
@@ -25,14 +26,25 @@ public class CentralExecutor implements Executor {
     private final Policy policy;
     private final Map<Class<? extends Runnable>, Submitter> quotas;
     private final int threadSize;
+    /** 优先级等待队列. */
+    private final PriorityBlockingQueue<Policy.ComparableTask> queue;
 
     private int reserved;
 
     public CentralExecutor(final int threadSize, Policy policy) {
+        this(threadSize, policy, new DebugableThreadFactory(CLASS_NAME));
+    }
+
+    /**
+     * @param threadFactory e.g. {@link AffinityThreadFactory} for pinning threads to cpus, or
+     *                      {@link InstrumentedThreadFactory} for telemetry of threads.
+     */
+    public CentralExecutor(final int threadSize, Policy policy, ThreadFactory threadFactory) {
         this.threadSize = threadSize;
         this.policy = policy;
-        this.service = newFixedThreadPool(threadSize, new DebugableThreadFactory(CLASS_NAME));
+        this.service = newFixedThreadPool(threadSize, threadFactory);
         this.quotas = new ConcurrentHashMap<Class<? extends Runnable>, Submitter>();
+        this.queue = new PriorityBlockingQueue<Policy.ComparableTask>();
     }
 
     public CentralExecutor(int threadSize) { this(threadSize, PESSIMISM); }
@@ -55,10 +67,11 @@ public class CentralExecutor implements Executor {
     }
 
     @Override
-    public void execute(Runnable task) {
+    public void execute(Runnable task) { submitterOf(task).submit(task, this); }
+
+    private Submitter submitterOf(Runnable task) {
         final Submitter submitter = quotas.get(task.getClass());
-        if (submitter != null) submitter.submit(task, this);
-        else policy.defaultSubmitter().submit(task, this);
+        return submitter != null ? submitter : policy.defaultSubmitter();
     }
 
     /** @return 预留配额. */
@@ -140,7 +153,12 @@ public class CentralExecutor implements Executor {
             /** 未定义配额的任务将直接进入等待队列, 但优先级低于所有定义了配额的任务. */
             private final Submitter defaultSubmitter = new Submitter() {
                 @Override
-                public void submit(Runnable task, CentralExecutor executor) { enqueue(new ComparableTask(task, Integer.MAX_VALUE)); }
+                public boolean trySubmit(Runnable task, CentralExecutor executor) { return false; }
+
+                @Override
+                public void submit(Runnable task, CentralExecutor executor) {
+                    enqueue(executor, new ComparableTask(task, Integer.MAX_VALUE));
+                }
             };
 
             @Override
@@ -150,12 +168,22 @@ public class CentralExecutor implements Executor {
             Submitter submitter(final Quota reserve, final Quota elastic) {
                 return new Submitter() {
                     @Override
-                    public void submit(final Runnable task, CentralExecutor executor) {
+                    public boolean trySubmit(Runnable task, CentralExecutor executor) {
                         if (reserve.acquire()) doSubmit(task, executor, reserve);
                             // 若存在为分配的预留配额, 则弹性配额进行争抢
                         else if (executor.hasUnreserved() && elastic.acquire()) doSubmit(task, executor, elastic);
-                            // 同悲观策略进入等待队列
-                        else enqueue(new ComparableTask(task, reserve.value));
+                        else return false;
+                        return true;
+                    }
+
+                    @Override
+                    public void submit(final Runnable task, CentralExecutor executor) {
+                        if (trySubmit(task, executor)) return;
+                        // 同悲观策略进入等待队列
+                        enqueue(executor, new ComparableTask(task, reserve.value));
+                        // 入列期间配额可能已被释放, 重新出列以免任务滞留
+                        if (reserve.state() > 0 || executor.hasUnreserved() && elastic.state() > 0)
+                            dequeueTo(executor);
                     }
                 };
             }
@@ -166,9 +194,12 @@ public class CentralExecutor implements Executor {
 
             private final Submitter defaultSubmitter = new Submitter() {
                 @Override
-                public void submit(Runnable task, CentralExecutor executor) {
+                public boolean trySubmit(Runnable task, CentralExecutor executor) {
                     throw new RejectedExecutionException("Unquotaed task can not be executed in pessimism.");
                 }
+
+                @Override
+                public void submit(Runnable task, CentralExecutor executor) { trySubmit(task, executor); }
             };
 
             @Override
@@ -180,39 +211,55 @@ public class CentralExecutor implements Executor {
                     throw new IllegalArgumentException("None-reserve task will never be executed in pessimism.");
 
                 return new Submitter() {
+                    @Override
+                    public boolean trySubmit(Runnable task, CentralExecutor executor) {
+                        if (!reserve.acquire()) return false;
+                        doSubmit(task, executor, reserve);
+                        return true;
+                    }
+
                     @Override
                     public void submit(final Runnable task, CentralExecutor executor) {
-                        if (reserve.acquire()) doSubmit(task, executor, reserve);
-                            // 耗尽预留配额后, 进入等待队列, 按预留额度大小排优先级, 大者优先.
-                        else enqueue(new ComparableTask(task, reserve.value));
+                        if (trySubmit(task, executor)) return;
+                        // 耗尽预留配额后, 进入等待队列, 按预留额度大小排优先级, 大者优先.
+                        enqueue(executor, new ComparableTask(task, reserve.value));
+                        // 入列期间配额可能已被释放, 重新出列以免任务滞留
+                        if (reserve.state() > 0) dequeueTo(executor);
                     }
                 };
             }
         };
 
 
-        /** 优先级等待队列. */
-        private final PriorityBlockingQueue<ComparableTask> queue = new PriorityBlockingQueue<ComparableTask>();
-
         abstract Submitter submitter(Quota reserve, Quota elastic);
 
         abstract Submitter defaultSubmitter();
 
-        /** 将任务入等待队列. */
-        void enqueue(ComparableTask task) {
-            queue.put(task);
+        /** 将任务入执行器的等待队列. */
+        void enqueue(CentralExecutor executor, ComparableTask task) {
+            executor.queue.put(task);
             LOGGER.debug("Enqueue {}", task.original);
         }
 
-        /** 将任务出列重新提交给执行器. */
+        /**
+         * 按优先级找到第一个有配额的等待任务, 出列并提交给执行器, 无配额的放回队列, 不阻塞当前线程.
+         * <p/>
+         * 串行执行, 以免放回前释放的配额被并发的出列错过, 而任务滞留.
+         */
         void dequeueTo(CentralExecutor executor) {
-            try {
-                final Runnable task = queue.take().original;
-                LOGGER.debug("Dequeue {}", task);
-                executor.execute(task);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                LOGGER.debug("Dequeue has been interrupted ", e);
+            synchronized (executor.queue) {
+                final List<ComparableTask> blocked = new ArrayList<ComparableTask>();
+                try {
+                    for (ComparableTask task = executor.queue.poll(); task != null; task = executor.queue.poll()) {
+                        if (executor.submitterOf(task.original).trySubmit(task.original, executor)) {
+                            LOGGER.debug("Dequeue {}", task.original);
+                            return;
+                        }
+                        blocked.add(task);
+                    }
+                } finally {
+                    executor.queue.addAll(blocked);
+                }
             }
         }
 
@@ -248,11 +295,14 @@ public class CentralExecutor implements Executor {
 
             @Override
             public void run() {
+                InstrumentedThreadFactory.taskStarted();
                 try {
                     task.run();
                 } catch (Throwable t) {
-                    LOGGER.error("Unexpected Interruption cause by", t);
+                    // 限流并异步记录, 以免依赖故障时日志拖垮所有工作线程.
+                    LoggingUncaughtExceptionHandler.SINGLETON.uncaughtException(Thread.currentThread(), t);
                 } finally {
+                    InstrumentedThreadFactory.taskFinished();
                     quota.release();
                     dequeueTo(executor);
                 }
@@ -262,6 +312,10 @@ public class CentralExecutor implements Executor {
 
     /** {@link Submitter} */
     private static interface Submitter {
+        /** @return false 表示当前无配额, 任务未提交. */
+        boolean trySubmit(Runnable task, CentralExecutor executor);
+
+        /** 无配额时进入等待队列. */
         void submit(Runnable task, CentralExecutor executor);
     }
 }
@@ -0,0 +1,290 @@
+package com.github.zhongl.jtoolkit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+
+/**
+ * {@link Configuration} is a view of properties in immutable {@link Snapshot}s, which read without lock.
+ * <p/>
+ * A value is read by a {@link Key} with its {@link PropertiesHelper.Converter}, and parsed once for a snapshot, the
+ * key would remember the last value with the snapshot it parsed from. So values should be immutable.
+ * <p/>
+ * After {@link #watch()}, the file would be reloaded on changed, a new snapshot would be swapped in, and listeners of
+ * keys changed would be notified.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class Configuration implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(Configuration.class);
+
+  public static final PropertiesHelper.Converter<String> STRING = new PropertiesHelper.Converter<String>() {
+    @Override
+    public String convert(final String value) { return value; }
+  };
+
+  public static final PropertiesHelper.Converter<Integer> INT = new PropertiesHelper.Converter<Integer>() {
+    @Override
+    public Integer convert(final String value) { return parseInt(value); }
+  };
+
+  public static final PropertiesHelper.Converter<Long> LONG = new PropertiesHelper.Converter<Long>() {
+    @Override
+    public Long convert(final String value) { return parseLong(value); }
+  };
+
+  public static final PropertiesHelper.Converter<Boolean> BOOLEAN = new PropertiesHelper.Converter<Boolean>() {
+    @Override
+    public Boolean convert(final String value) { return parseBoolean(value); }
+  };
+
+  public Configuration(final File file) throws IOException {
+    this.file = file;
+    this.snapshot = new Snapshot(load(file));
+  }
+
+  /** A configuration of properties, which can not be reloaded. */
+  public Configuration(final Properties properties) {
+    this.file = null;
+    this.snapshot = new Snapshot(properties);
+  }
+
+  /** @return a key of which value is required, or it would be illegal argument. */
+  public static <V> Key<V> key(final String name, final PropertiesHelper.Converter<V> converter) {
+    return new Key<V>(name, converter, null);
+  }
+
+  /** @param defaultValue would be converted if the key is missing. */
+  public static <V> Key<V> key(final String name, final PropertiesHelper.Converter<V> converter,
+                               final String defaultValue) {
+    if (defaultValue == null) throw new IllegalArgumentException("Default value should not be null.");
+    return new Key<V>(name, converter, defaultValue);
+  }
+
+  /** @return current snapshot, to read values of a consistent version. */
+  public Snapshot snapshot() { return snapshot; }
+
+  /** @return value of current snapshot. */
+  public <V> V get(final Key<V> key) { return snapshot.get(key); }
+
+  /** @param keys of which changes would be notified, or changes of any if none. */
+  public void addListener(final Listener listener, final String... keys) {
+    final Set<String> interested = keys.length == 0 ? null : new HashSet<String>(Arrays.asList(keys));
+    registrations.add(new Registration(listener, interested));
+  }
+
+  public void removeListener(final Listener listener) {
+    for (final Registration registration : registrations) {
+      if (registration.listener == listener) registrations.remove(registration);
+    }
+  }
+
+  /**
+   * Watch the file by a daemon thread until closed, a change failed to reload would be logged and ignored.
+   *
+   * @throws IllegalStateException if it is not of a file, or has been watched.
+   */
+  public synchronized Configuration watch() throws IOException {
+    if (file == null) throw new IllegalStateException("Configuration is not of a file.");
+    if (watcher != null) throw new IllegalStateException("Configuration has been watched.");
+    final Path path = file.getAbsoluteFile().toPath();
+    final WatchService service = path.getFileSystem().newWatchService();
+    path.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    watcher = service;
+    new DebugableThreadFactory("configuration-watcher", true).newThread(new Runnable() {
+      @Override
+      public void run() { watch(service, path.getFileName()); }
+    }).start();
+    return this;
+  }
+
+  /**
+   * Reload the file, and swap in a new snapshot if any key changed.
+   *
+   * @return keys changed.
+   */
+  public synchronized Set<String> reload() throws IOException {
+    if (file == null) throw new IllegalStateException("Configuration is not of a file.");
+    final Snapshot previous = snapshot;
+    final Snapshot current = new Snapshot(load(file));
+    final Set<String> changed = previous.diff(current);
+    if (changed.isEmpty()) return changed;
+    snapshot = current;
+    for (final Registration registration : registrations) registration.notify(changed, current);
+    return changed;
+  }
+
+  /** Stop watching. */
+  @Override
+  public synchronized void close() throws IOException {
+    if (watcher != null) watcher.close();
+  }
+
+  private void watch(final WatchService service, final Path name) {
+    try {
+      for (; ; ) {
+        final WatchKey key = service.take();
+        boolean changed = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+          changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context());
+        }
+        key.reset();
+        if (!changed) continue;
+        try {
+          reload();
+        } catch (IOException e) {
+          LOGGER.warn("Failed to reload " + file, e);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // closed
+    }
+  }
+
+  private static Properties load(final File file) throws IOException {
+    final Properties properties = new Properties();
+    final FileReader reader = new FileReader(file);
+    try {
+      properties.load(reader);
+    } finally {
+      reader.close();
+    }
+    return properties;
+  }
+
+  private final File file;
+  private final List<Registration> registrations = new CopyOnWriteArrayList<Registration>();
+
+  private volatile Snapshot snapshot;
+  private WatchService watcher;
+
+  public interface Listener {
+    /**
+     * Called by the thread reloading, after the snapshot swapped in.
+     *
+     * @param keys     changed, added or removed, which the listener is interested in.
+     * @param snapshot the current one.
+     */
+    void onChanged(Set<String> keys, Snapshot snapshot);
+  }
+
+  /** {@link Snapshot} is immutable values of a version, of which trimmed strings are parsed on demand. */
+  public static final class Snapshot {
+    private final Map<String, String> values;
+
+    private Snapshot(final Properties properties) {
+      final Map<String, String> values = new HashMap<String, String>();
+      for (final String name : properties.stringPropertyNames()) values.put(name, properties.getProperty(name).trim());
+      this.values = values;
+    }
+
+    public boolean contains(final String name) { return values.containsKey(name); }
+
+    /** @throws IllegalArgumentException if required key is missing, or its value is illegal. */
+    public <V> V get(final Key<V> key) { return key.from(this); }
+
+    /** @return names of all keys. */
+    public Set<String> names() { return Collections.unmodifiableSet(values.keySet()); }
+
+    private Set<String> diff(final Snapshot that) {
+      final Set<String> changed = new HashSet<String>();
+      for (final Map.Entry<String, String> entry : values.entrySet()) {
+        if (!entry.getValue().equals(that.values.get(entry.getKey()))) changed.add(entry.getKey());
+      }
+      for (final String name : that.values.keySet()) {
+        if (!values.containsKey(name)) changed.add(name);
+      }
+      return changed;
+    }
+  }
+
+  /** {@link Key} converts its value of a snapshot, and caches the last one. */
+  public static final class Key<V> {
+    private final String name;
+    private final PropertiesHelper.Converter<V> converter;
+    private final String defaultValue;
+
+    private volatile Parsed<V> parsed;
+
+    private Key(final String name, final PropertiesHelper.Converter<V> converter, final String defaultValue) {
+      this.name = name;
+      this.converter = converter;
+      this.defaultValue = defaultValue;
+    }
+
+    public String name() { return name; }
+
+    @Override
+    public String toString() { return name; }
+
+    private V from(final Snapshot snapshot) {
+      final Parsed<V> last = parsed;
+      if (last != null && last.snapshot == snapshot) return last.value;
+      String value = snapshot.values.get(name);
+      if (value == null) value = defaultValue;
+      if (value == null) throw new IllegalArgumentException(name + " is missing.");
+      final V converted = converter.convert(value);
+      parsed = new Parsed<V>(snapshot, converted);
+      return converted;
+    }
+  }
+
+  private static final class Parsed<V> {
+    private final Snapshot snapshot;
+    private final V value;
+
+    private Parsed(final Snapshot snapshot, final V value) {
+      this.snapshot = snapshot;
+      this.value = value;
+    }
+  }
+
+  private static final class Registration {
+    private final Listener listener;
+    private final Set<String> keys;
+
+    private Registration(final Listener listener, final Set<String> keys) {
+      this.listener = listener;
+      this.keys = keys;
+    }
+
+    void notify(final Set<String> changed, final Snapshot snapshot) {
+      Set<String> interested = changed;
+      if (keys != null) {
+        interested = new HashSet<String>(changed);
+        interested.retainAll(keys);
+        if (interested.isEmpty()) return;
+      }
+      try {
+        listener.onChanged(Collections.unmodifiableSet(interested), snapshot);
+      } catch (RuntimeException e) {
+        LOGGER.warn("Failed to notify " + listener, e);
+      }
+    }
+  }
+}
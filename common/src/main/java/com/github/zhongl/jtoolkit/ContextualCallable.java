@@ -0,0 +1,41 @@
+package com.github.zhongl.jtoolkit;
+
+import java.util.concurrent.Callable;
+
+/**
+ * {@link ContextualCallable} calls with its {@link TaskContext}, which is restored after call even if it throws.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class ContextualCallable<V> implements Callable<V> {
+
+  public static final <V> Callable<V> contextual(final Callable<V> callable, final TaskContext context) {
+    return new ContextualCallable<V>(callable, context);
+  }
+
+  private ContextualCallable(final Callable<V> callable, final TaskContext context) {
+    this.callable = callable;
+    this.context = context;
+  }
+
+  @Override
+  public V call() throws Exception {
+    final TaskContext.Slot slot = TaskContext.slot();
+    final TaskContext previous = slot.context;
+    final long previousStartedAt = slot.startedAt;
+    final String[] previousMdc = context.enter(slot);
+    try {
+      return callable.call();
+    } finally {
+      context.exit(slot, previous, previousStartedAt, previousMdc);
+    }
+  }
+
+  public TaskContext context() { return context; }
+
+  @Override
+  public String toString() { return context + ": " + callable; }
+
+  private final Callable<V> callable;
+  private final TaskContext context;
+}
@@ -0,0 +1,39 @@
+package com.github.zhongl.jtoolkit;
+
+/**
+ * {@link ContextualRunnable} runs with its {@link TaskContext}, which is restored after run even if it throws.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class ContextualRunnable implements Runnable {
+
+  public static final Runnable contextual(final Runnable runnable, final TaskContext context) {
+    return new ContextualRunnable(runnable, context);
+  }
+
+  private ContextualRunnable(final Runnable runnable, final TaskContext context) {
+    this.runnable = runnable;
+    this.context = context;
+  }
+
+  @Override
+  public void run() {
+    final TaskContext.Slot slot = TaskContext.slot();
+    final TaskContext previous = slot.context;
+    final long previousStartedAt = slot.startedAt;
+    final String[] previousMdc = context.enter(slot);
+    try {
+      runnable.run();
+    } finally {
+      context.exit(slot, previous, previousStartedAt, previousMdc);
+    }
+  }
+
+  public TaskContext context() { return context; }
+
+  @Override
+  public String toString() { return context + ": " + runnable; }
+
+  private final Runnable runnable;
+  private final TaskContext context;
+}
@@ -0,0 +1,289 @@
+package com.github.zhongl.jtoolkit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link DirectBufferPool} reuses direct buffers, since {@link ByteBuffer#allocateDirect(int)} is expensive.
+ * <p/>
+ * Sizes are rounded up to classes of power of 2. Buffers of a class are sliced from a slab, and released ones are
+ * cached by the releasing thread first, then shared by all threads. Those larger than the max class are not pooled,
+ * and would be freed at once on releasing. Buffers cached by a terminated thread would not be reused.
+ * <p/>
+ * With leak detection, a {@link Pooled} collected by GC before released would be counted and logged. Its buffer would
+ * not be reused, since the caller may still hold it. It costs a weak reference for each acquisition, so it is supposed
+ * for testing.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class DirectBufferPool {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DirectBufferPool.class);
+
+  private static final AtomicIntegerFieldUpdater<Pooled> RELEASED =
+      AtomicIntegerFieldUpdater.newUpdater(Pooled.class, "released");
+
+  /** Classes from 512B to 1M, slab is 4M, and 16 buffers of a class cached by each thread, without leak detection. */
+  public DirectBufferPool() {
+    this(512, 1 << 20, 4 << 20, 16, false);
+  }
+
+  /**
+   * @param minSize         of class, should be power of 2.
+   * @param maxSize         of class, should be power of 2 and not greater than slab size.
+   * @param slabSize        should be power of 2.
+   * @param threadCacheSize number of buffers of a class cached by each thread, 0 means no cache.
+   * @param detectLeaks
+   */
+  public DirectBufferPool(final int minSize, final int maxSize, final int slabSize, final int threadCacheSize,
+                          final boolean detectLeaks) {
+    if (!isPowerOf2(minSize) || !isPowerOf2(maxSize) || !isPowerOf2(slabSize))
+      throw new IllegalArgumentException("Sizes should be power of 2.");
+    if (minSize > maxSize || maxSize > slabSize)
+      throw new IllegalArgumentException("It should be min size <= max size <= slab size.");
+    if (threadCacheSize < 0) throw new IllegalArgumentException("Thread cache size should not be negative.");
+    this.minShift = Integer.numberOfTrailingZeros(minSize);
+    this.slabSize = slabSize;
+    this.threadCacheSize = threadCacheSize;
+    this.leaks = detectLeaks ? new ReferenceQueue<Pooled>() : null;
+    final int classes = Integer.numberOfTrailingZeros(maxSize) - minShift + 1;
+    this.shared = new SizeClass[classes];
+    for (int i = 0; i < classes; i++) shared[i] = new SizeClass(minSize << i);
+  }
+
+  /** @return a buffer of which limit is size, and capacity may be larger. */
+  public Pooled acquire(final int size) {
+    if (size < 0) throw new IllegalArgumentException("Size should not be negative.");
+    checkNotDisposed();
+    if (leaks != null) reclaimLeaks();
+
+    final int index = classOf(size);
+    if (index >= shared.length) {
+      acquisitions.increment();
+      unpooledBytes.addAndGet(size);
+      return track(new Pooled(ByteBuffer.allocateDirect(size), -1), size);
+    }
+
+    ByteBuffer buffer = threadCacheSize > 0 ? cache()[index].poll() : null;
+    if (buffer != null) {
+      checkNotDisposed(); // slab of it may be freed by a concurrent dispose.
+      cacheHits.increment();
+    } else {
+      buffer = shared[index].poll(); // checked under its monitor.
+    }
+    acquisitions.increment();
+    return track(new Pooled(buffer, index), size);
+  }
+
+  /** @return number of acquisitions. */
+  public long acquisitions() { return acquisitions.sum(); }
+
+  /** @return number of acquisitions served by cache of thread. */
+  public long cacheHits() { return cacheHits.sum(); }
+
+  /** @return number of buffers acquired but not released. */
+  public long inUse() { return acquisitions.sum() - releases.sum(); }
+
+  /** @return bytes of direct memory allocated for slabs, and those not pooled in use. */
+  public long allocatedBytes() { return slabBytes.get() + unpooledBytes.get(); }
+
+  /** @return number of leaks detected. */
+  public long leaks() { return leaked.get(); }
+
+  /**
+   * Free all slabs, buffers of the pool should not be used anymore. Acquisitions after would be rejected, and buffers
+   * released after would be dropped, so those cached by threads would never be reused.
+   */
+  public void dispose() {
+    disposed = true;
+    caches.remove();
+    for (final SizeClass sizeClass : shared) sizeClass.dispose();
+  }
+
+  @Override
+  public String toString() {
+    return "DirectBufferPool{acquisitions=" + acquisitions() + ", cacheHits=" + cacheHits() + ", inUse=" + inUse()
+        + ", allocatedBytes=" + allocatedBytes() + ", leaks=" + leaks() + '}';
+  }
+
+  private void checkNotDisposed() {
+    if (disposed) throw new IllegalStateException("Pool has been disposed.");
+  }
+
+  private void release(final Pooled pooled) {
+    if (!RELEASED.compareAndSet(pooled, 0, 1)) throw new IllegalStateException("Buffer has been released.");
+    if (pooled.leak != null) {
+      pooled.leak.clear();
+      tracked.remove(pooled.leak);
+    }
+    recycle(pooled.buffer, pooled.index);
+  }
+
+  private void recycle(final ByteBuffer buffer, final int index) {
+    releases.increment();
+    if (index < 0) {
+      unpooledBytes.addAndGet(-buffer.capacity());
+      DirectByteBufferCleaner.clean(buffer);
+      return;
+    }
+    if (disposed) return;
+    buffer.clear();
+    if (threadCacheSize == 0 || !cache()[index].offer(buffer)) shared[index].offer(buffer);
+  }
+
+  private Pooled track(final Pooled pooled, final int size) {
+    pooled.buffer.clear().limit(size);
+    if (leaks != null) {
+      pooled.leak = new Leak(pooled, leaks);
+      tracked.add(pooled.leak);
+    }
+    return pooled;
+  }
+
+  /** Buffers of leaks are never recycled, for callers may still hold them without the {@link Pooled}. */
+  private void reclaimLeaks() {
+    for (Leak leak = (Leak) leaks.poll(); leak != null; leak = (Leak) leaks.poll()) {
+      if (!tracked.remove(leak)) continue; // released
+      leaked.incrementAndGet();
+      LOGGER.warn("Leak of direct buffer of {} bytes, which was acquired at:", leak.capacity, leak.acquiredAt);
+    }
+  }
+
+  private int classOf(final int size) {
+    if (size <= 1 << minShift) return 0;
+    return 32 - Integer.numberOfLeadingZeros(size - 1) - minShift;
+  }
+
+  private ThreadCache[] cache() {
+    ThreadCache[] cache = caches.get();
+    if (cache == null) {
+      cache = new ThreadCache[shared.length];
+      for (int i = 0; i < cache.length; i++) cache[i] = new ThreadCache(threadCacheSize);
+      caches.set(cache);
+    }
+    return cache;
+  }
+
+  private static boolean isPowerOf2(final int size) { return size > 0 && Integer.bitCount(size) == 1; }
+
+  private final int minShift;
+  private final int slabSize;
+  private final int threadCacheSize;
+  private final SizeClass[] shared;
+  private final ThreadLocal<ThreadCache[]> caches = new ThreadLocal<ThreadCache[]>();
+  private final ReferenceQueue<Pooled> leaks;
+  private final Set<Leak> tracked = ConcurrentHashMap.newKeySet();
+
+  private final LongAdder acquisitions = new LongAdder();
+  private final LongAdder releases = new LongAdder();
+  private final LongAdder cacheHits = new LongAdder();
+  private final AtomicLong slabBytes = new AtomicLong();
+  private final AtomicLong unpooledBytes = new AtomicLong();
+  private final AtomicLong leaked = new AtomicLong();
+
+  private volatile boolean disposed;
+
+  /** {@link Pooled} holds an acquired buffer until it is released. */
+  public final class Pooled implements Closeable {
+    private final ByteBuffer buffer;
+    private final int index;
+    private Leak leak;
+    volatile int released; // updated by RELEASED
+
+    private Pooled(final ByteBuffer buffer, final int index) {
+      this.buffer = buffer;
+      this.index = index;
+    }
+
+    /** @return the buffer, which should not be used after released. */
+    public ByteBuffer buffer() { return buffer; }
+
+    /** @throws IllegalStateException if it has been released. */
+    public void release() { DirectBufferPool.this.release(this); }
+
+    @Override
+    public void close() { release(); }
+  }
+
+  /** {@link SizeClass} shares released buffers of a size by all threads, and slices slabs for new ones. */
+  private final class SizeClass {
+    private final int size;
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<ByteBuffer>();
+    private final List<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+    private boolean disposed;
+
+    private SizeClass(final int size) {this.size = size;}
+
+    /** @throws IllegalStateException if it has been disposed, no slab would be allocated then. */
+    synchronized ByteBuffer poll() {
+      if (disposed) throw new IllegalStateException("Pool has been disposed.");
+      if (buffers.isEmpty()) slice();
+      return buffers.poll();
+    }
+
+    synchronized void offer(final ByteBuffer buffer) {
+      if (!disposed) buffers.push(buffer);
+    }
+
+    synchronized void dispose() {
+      disposed = true;
+      for (final ByteBuffer slab : slabs) DirectByteBufferCleaner.clean(slab);
+      slabs.clear();
+      buffers.clear();
+    }
+
+    private void slice() {
+      final ByteBuffer slab = ByteBuffer.allocateDirect(slabSize);
+      slabs.add(slab);
+      slabBytes.addAndGet(slabSize);
+      for (int position = 0; position < slabSize; position += size) {
+        slab.limit(position + size).position(position);
+        buffers.push(slab.slice());
+      }
+    }
+  }
+
+  /** {@link ThreadCache} is a bounded stack of buffers of a class for a thread. */
+  private static final class ThreadCache {
+    private final ByteBuffer[] buffers;
+    private int count;
+
+    private ThreadCache(final int size) {buffers = new ByteBuffer[size];}
+
+    ByteBuffer poll() {
+      if (count == 0) return null;
+      final ByteBuffer buffer = buffers[--count];
+      buffers[count] = null;
+      return buffer;
+    }
+
+    boolean offer(final ByteBuffer buffer) {
+      if (count == buffers.length) return false;
+      buffers[count++] = buffer;
+      return true;
+    }
+  }
+
+  /** {@link Leak} tells where a {@link Pooled} was acquired, in case it was not released. */
+  private static final class Leak extends WeakReference<Pooled> {
+    private final int capacity;
+    private final Throwable acquiredAt = new Throwable();
+
+    private Leak(final Pooled pooled, final ReferenceQueue<Pooled> queue) {
+      super(pooled, queue);
+      this.capacity = pooled.buffer.capacity();
+    }
+  }
+}
@@ -1,12 +1,15 @@
 package com.github.zhongl.jtoolkit;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
 
 /**
- * {@link DirectByteBufferCleaner}
+ * {@link DirectByteBufferCleaner} frees memory of direct buffer at once, instead of waiting for GC.
+ * <p/>
+ * It uses <code>sun.misc.Unsafe.invokeCleaner</code> since Java 9, which can not access <code>cleaner()</code> of
+ * direct buffer any more, and <code>sun.misc.Cleaner</code> before.
  *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  * @created 2011-1-14
@@ -14,27 +17,79 @@ import java.security.PrivilegedAction;
 public final class DirectByteBufferCleaner {
   private DirectByteBufferCleaner() {}
 
+  /** Free memory of buffer if possible, see {@link #tryClean(ByteBuffer)}. */
   public static void clean(final ByteBuffer byteBuffer) {
-    if (!byteBuffer.isDirect()) return;
+    tryClean(byteBuffer);
+  }
+
+  /**
+   * @return true if memory of buffer was freed, false if it is not direct, is a slice or duplicate, or is not supported
+   *         by the JVM.
+   */
+  public static boolean tryClean(final ByteBuffer byteBuffer) {
+    if (!byteBuffer.isDirect()) return false;
     try {
-      Object cleaner = invoke(byteBuffer, "cleaner");
-      invoke(cleaner, "clean");
-    } catch (Exception e) { /* ignore */ }
+      return CLEANER.free(byteBuffer);
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  /** @return true if the JVM supports freeing direct buffer. */
+  public static boolean isSupported() {
+    return CLEANER != UNSUPPORTED;
   }
 
-  private static Object invoke(final Object target, String methodName) throws Exception {
-    final Method method = target.getClass().getMethod(methodName);
-    return AccessController.doPrivileged(new PrivilegedAction<Object>() {
-      @Override
-      public Object run() {
-        try {
-          method.setAccessible(true);
-          return method.invoke(target);
-        } catch (Exception e) {
-          throw new RuntimeException(e);
+  private static Cleaner cleaner() {
+    try {
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      final Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      final Object unsafe = field.get(null);
+      return new Cleaner() {
+        @Override
+        boolean free(final ByteBuffer buffer) throws Exception {
+          try {
+            invokeCleaner.invoke(unsafe, buffer);
+            return true;
+          } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IllegalArgumentException) return false; // slice or duplicate
+            throw e;
+          }
         }
-      }
-    });
+      };
+    } catch (Exception e) {
+      // before Java 9
+    }
+
+    try {
+      final Method cleaner = Class.forName("java.nio.DirectByteBuffer").getMethod("cleaner");
+      cleaner.setAccessible(true);
+      final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      clean.setAccessible(true);
+      return new Cleaner() {
+        @Override
+        boolean free(final ByteBuffer buffer) throws Exception {
+          final Object target = cleaner.invoke(buffer);
+          if (target == null) return false; // slice or duplicate
+          clean.invoke(target);
+          return true;
+        }
+      };
+    } catch (Exception e) {
+      return UNSUPPORTED;
+    }
   }
 
+  private static final Cleaner UNSUPPORTED = new Cleaner() {
+    @Override
+    boolean free(final ByteBuffer buffer) { return false; }
+  };
+
+  private static final Cleaner CLEANER = cleaner();
+
+  private static abstract class Cleaner {
+    abstract boolean free(ByteBuffer buffer) throws Exception;
+  }
 }
@@ -1,17 +1,46 @@
 package com.github.zhongl.jtoolkit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
 
 
 /**
- * {@link DirectoryCleaner}
+ * {@link DirectoryCleaner} deletes a directory with all in it.
+ * <p/>
+ * {@link #cleanInParallel(Path, ForkJoinPool, Listener)} deletes subtrees in a {@link ForkJoinPool}, and unlinks files
+ * relative to an opened directory by {@link SecureDirectoryStream} where it is available, so that each file costs a
+ * syscall without resolving its full path. Symbolic links are deleted but never followed.
+ * <p/>
+ * Entries of a directory are deleted by one thread, since unlinking in a directory is serialized by file system.
  *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  * @created 2010-12-3
  */
 public final class DirectoryCleaner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryCleaner.class);
+
+  /** Progress would be reported about every these deletions. */
+  static final long PROGRESS_INTERVAL = 8192L;
 
   private DirectoryCleaner() {}
 
@@ -19,6 +48,48 @@ public final class DirectoryCleaner {
 
   public static void clean(final String dir) { clean(new File(dir)); }
 
+  /** Clean in {@link ForkJoinPool#commonPool()}, and log errors. */
+  public static Report cleanInParallel(final Path dir) {
+    return cleanInParallel(dir, ForkJoinPool.commonPool(), LOGGING);
+  }
+
+  /**
+   * Deletion is blocking I/O, a pool with parallelism more than number of processors may be faster on storage which
+   * can serve concurrent requests.
+   *
+   * @param dir      would be deleted too, nothing happens if it does not exist.
+   * @param pool     to run deletion of subtrees.
+   * @param listener would be called by threads of pool concurrently.
+   * @return report after all deleted, or failed.
+   */
+  public static Report cleanInParallel(final Path dir, final ForkJoinPool pool, final Listener listener) {
+    return cleanInParallel(dir, pool, listener, PROGRESS_INTERVAL);
+  }
+
+  static Report cleanInParallel(final Path dir, final ForkJoinPool pool, final Listener listener, final long interval) {
+    final Report report = new Report(listener, interval);
+    final BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(dir, BasicFileAttributes.class, NOFOLLOW_LINKS);
+    } catch (NoSuchFileException e) {
+      return report;
+    } catch (IOException e) {
+      report.failed(dir, e);
+      return report;
+    }
+
+    if (attributes.isDirectory()) pool.invoke(new Subtree(null, dir, report));
+    try {
+      Files.delete(dir);
+      report.deleted(1);
+    } catch (NoSuchFileException ignored) {
+      // deleted by others
+    } catch (IOException e) {
+      report.failed(dir, e);
+    }
+    return report;
+  }
+
   private final static RecurseTree.IteratorFactory<File> FACTORY = new RecurseTree.IteratorFactory<File>() {
     @Override
     public Iterator<File> iterator(final File obj) {
@@ -31,4 +102,157 @@ public final class DirectoryCleaner {
     @Override
     public void onCallback(final File obj) { obj.delete(); }
   };
+
+  private final static Listener LOGGING = new Listener() {
+    @Override
+    public void onProgress(final long deleted) { LOGGER.debug("{} deleted.", deleted); }
+
+    @Override
+    public void onError(final Path path, final IOException e) { LOGGER.warn("Failed to delete " + path, e); }
+  };
+
+  /** {@link Listener} of {@link #cleanInParallel(Path, ForkJoinPool, Listener)}, it should be thread safe. */
+  public interface Listener {
+    /** @param deleted number of entries deleted so far. */
+    void onProgress(long deleted);
+
+    /** @param path failed to be deleted, or to be listed if it is a directory. */
+    void onError(Path path, IOException e);
+  }
+
+  /** {@link Report} counts deletions and failures. */
+  public static final class Report {
+    private final Listener listener;
+    private final long interval;
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private Report(final Listener listener, final long interval) {
+      this.listener = listener;
+      this.interval = interval;
+    }
+
+    /** @return number of files, directories and links deleted. */
+    public long deleted() { return deleted.get(); }
+
+    /** @return number of errors reported to listener. */
+    public long failures() { return failures.get(); }
+
+    @Override
+    public String toString() { return "Report{deleted=" + deleted() + ", failures=" + failures() + '}'; }
+
+    private void deleted(final int count) {
+      if (count == 0) return;
+      final long total = deleted.addAndGet(count);
+      if ((total - count) / interval != total / interval) listener.onProgress(total);
+    }
+
+    private void failed(final Path path, final IOException e) {
+      failures.incrementAndGet();
+      listener.onError(path, e);
+    }
+  }
+
+  /**
+   * {@link Subtree} deletes files in a directory, and closes it before forking subtrees of its sub directories. It
+   * deletes the directory on completion of all subtrees, except the root which is left to caller, so neither stack nor
+   * opened directories grow with depth of tree.
+   */
+  private static final class Subtree extends CountedCompleter<Void> {
+    private static final long serialVersionUID = 1L;
+    private static final int BATCH = 1024;
+
+    private final Path path;
+    private final Report report;
+
+    private Subtree(final Subtree parent, final Path path, final Report report) {
+      super(parent);
+      this.path = path;
+      this.report = report;
+    }
+
+    @Override
+    public void compute() {
+      for (final Path directory : deleteFiles()) {
+        addToPendingCount(1);
+        new Subtree(this, directory, report).fork();
+      }
+      tryComplete();
+    }
+
+    @Override
+    public void onCompletion(final CountedCompleter<?> caller) {
+      if (getCompleter() == null) return; // root
+      try {
+        Files.delete(path);
+        report.deleted(1);
+      } catch (NoSuchFileException ignored) {
+        // deleted by others
+      } catch (IOException e) {
+        report.failed(path, e);
+      }
+    }
+
+    /** @return sub directories, after the directory closed. */
+    private List<Path> deleteFiles() {
+      final List<Path> directories = new ArrayList<Path>();
+      final DirectoryStream<Path> stream;
+      try {
+        stream = Files.newDirectoryStream(path);
+      } catch (NoSuchFileException e) {
+        return directories;
+      } catch (IOException e) {
+        report.failed(path, e);
+        return directories;
+      }
+
+      final SecureDirectoryStream<Path> secure =
+          stream instanceof SecureDirectoryStream ? (SecureDirectoryStream<Path>) stream : null;
+      int deleted = 0;
+      try {
+        for (final Path entry : stream) {
+          final Path name = entry.getFileName();
+          try {
+            delete(secure, name); // most entries are files, a directory would fail without extra stat.
+            deleted++;
+          } catch (NoSuchFileException ignored) {
+            // deleted by others
+          } catch (IOException e) {
+            if (isDirectory(secure, name)) directories.add(path.resolve(name));
+            else report.failed(path.resolve(name), e);
+          }
+          if (deleted == BATCH) {
+            report.deleted(deleted);
+            deleted = 0;
+          }
+        }
+      } catch (DirectoryIteratorException e) {
+        report.failed(path, e.getCause());
+      } finally {
+        report.deleted(deleted);
+        try {
+          stream.close();
+        } catch (IOException e) {
+          report.failed(path, e);
+        }
+      }
+      return directories;
+    }
+
+    private void delete(final SecureDirectoryStream<Path> secure, final Path name) throws IOException {
+      if (secure == null) Files.delete(path.resolve(name));
+      else secure.deleteFile(name);
+    }
+
+    private boolean isDirectory(final SecureDirectoryStream<Path> secure, final Path name) {
+      try {
+        final BasicFileAttributes attributes = secure == null
+            ? Files.readAttributes(path.resolve(name), BasicFileAttributes.class, NOFOLLOW_LINKS)
+            : secure.getFileAttributeView(name, BasicFileAttributeView.class, NOFOLLOW_LINKS).readAttributes();
+        return attributes.isDirectory();
+      } catch (IOException e) {
+        return false;
+      }
+    }
+  }
 }
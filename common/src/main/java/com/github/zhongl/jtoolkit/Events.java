@@ -2,21 +2,40 @@ package com.github.zhongl.jtoolkit;
 
 import static java.util.concurrent.Executors.*;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * {@link Events}
+ * <p/>
+ * Threads of executor would be pinned to cpus by {@link AffinityThreadFactory}, if system property
+ * <code>jtoolkit.events.affinity</code> is set to a {@link AffinityThreadFactory.Policy#parse(String) policy}, and
+ * would be instrumented by {@link InstrumentedThreadFactory} if <code>jtoolkit.events.telemetry</code> is true. An
+ * invalid policy, or one not applicable to the host, would be logged and threads run unpinned.
  *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  * @created 2010-11-26
  */
 public final class Events {
+  private static final Logger LOGGER = LoggerFactory.getLogger(Events.class);
 
   public static int executorNum = Runtime.getRuntime().availableProcessors();
   public static int schedulerNum = 1;
+  public static final String AFFINITY = "jtoolkit.events.affinity";
+  public static final String TELEMETRY = "jtoolkit.events.telemetry";
 
   static {
-    EXECUTOR = newFixThreadPool(executorNum, new DebugableThreadFactory("events-executor", true));
+    final ThreadFactory executorFactory = executorFactory(System.getProperty(AFFINITY));
+    final InstrumentedThreadFactory instrumented = Boolean.getBoolean(TELEMETRY)
+        ? new InstrumentedThreadFactory(executorFactory, SystemClock.shared(10L), 1000L) : null;
+    INSTRUMENTED = instrumented;
+    EXECUTOR = newFixThreadPool(executorNum, instrumented == null ? executorFactory : instrumented);
     SCHEDULER = newScheduledThreadPool(schedulerNum, new DebugableThreadFactory("events-scheduler", true));
     final Thread shutdownEvents = new Thread(new Runnable() {
       @Override
@@ -26,6 +45,18 @@ public final class Events {
     Runtime.getRuntime().addShutdownHook(shutdownEvents);
   }
 
+  /** @return factory of executor threads, pinned by the affinity policy if it is valid. */
+  static ThreadFactory executorFactory(final String affinity) {
+    if (affinity != null) {
+      try {
+        return new AffinityThreadFactory("events-executor", true, AffinityThreadFactory.Policy.parse(affinity));
+      } catch (RuntimeException e) { // failed in static initializer would make Events unusable.
+        LOGGER.warn("Invalid affinity policy " + affinity + ", events executor runs unpinned.", e);
+      }
+    }
+    return new DebugableThreadFactory("events-executor", true);
+  }
+
   public static void dispose() {
     try {
       do {
@@ -43,15 +74,49 @@ public final class Events {
     }
   }
 
+  /** @return telemetry of executor threads, or empty if it is not instrumented. */
+  public static List<InstrumentedThreadFactory.ThreadTelemetry> telemetry() {
+    if (INSTRUMENTED == null) return Collections.emptyList();
+    return INSTRUMENTED.snapshot();
+  }
+
   /** @see java.util.concurrent.ExecutorService#execute(Runnable) */
   public static void enqueue(final Runnable task) {
     EXECUTOR.execute(task);
   }
 
+  /**
+   * Enqueue task only if a token could be taken from bucket.
+   *
+   * @return false means task has been dropped for rate limit.
+   */
+  public static boolean tryEnqueue(final Runnable task, final TokenBucket bucket) {
+    if (!bucket.tryAcquire()) return false;
+    enqueue(task);
+    return true;
+  }
+
+  /** Enqueue task after a token has been taken from bucket, the caller would be blocked until then. */
+  public static void enqueue(final Runnable task, final TokenBucket bucket) throws InterruptedException {
+    bucket.acquire();
+    enqueue(task);
+  }
+
   public static ScheduledFuture<?> scheduleAtFixedRate(final Runnable command, final long period, final TimeUnit unit) {
     return scheduleAtFixedRate(event(command), period, period, unit);
   }
 
+  /**
+   * Schedule command as {@link #scheduleAtFixedRate(Runnable, long, TimeUnit)}, but the tick fired during the previous
+   * execution of command is still in flight would be treated by overlap.
+   */
+  public static Periodic scheduleAtFixedRate(final Runnable command, final long period, final TimeUnit unit,
+                                             final Overlap overlap) {
+    final Periodic periodic = new Periodic(command, unit.toNanos(period), overlap);
+    periodic.future = scheduleAtFixedRate(periodic, period, period, unit);
+    return periodic;
+  }
+
   /** @see java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate(Runnable, long, long, TimeUnit) */
   public static ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
                                                        TimeUnit unit) {
@@ -71,9 +136,149 @@ public final class Events {
   private static ThreadPoolExecutor newFixThreadPool(int nThreads, ThreadFactory threadFactory) {
     return new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
                                   new LinkedBlockingQueue<Runnable>(nThreads * 2), threadFactory,
-                                  new ThreadPoolExecutor.CallerRunsPolicy());
+                                  new Overflow()) {
+      @Override
+      protected void beforeExecute(final Thread t, final Runnable r) { InstrumentedThreadFactory.taskStarted(); }
+
+      @Override
+      protected void afterExecute(final Runnable r, final Throwable t) { InstrumentedThreadFactory.taskFinished(); }
+    };
+  }
+
+  /**
+   * {@link Overflow} rejects executions of {@link Periodic} if the executor is full or shutdown, so they never run in
+   * scheduler thread, others are run by the caller as {@link ThreadPoolExecutor.CallerRunsPolicy} does.
+   */
+  private static final class Overflow implements RejectedExecutionHandler {
+    private final RejectedExecutionHandler callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+
+    @Override
+    public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+      if (r instanceof Periodic.Execution) throw new RejectedExecutionException("Executor is full or shutdown.");
+      callerRuns.rejectedExecution(r, executor);
+    }
+  }
+
+  /** {@link Overlap} decides what to do with a tick while the previous execution is still in flight. */
+  public static enum Overlap {
+    /** Enqueue every tick, executions may pile up in the queue. */
+    ALLOW,
+    /** Drop the tick. */
+    SKIP,
+    /** Merge all ticks fired during an execution into one, which would be enqueued after the execution. */
+    COALESCE
+  }
+
+  /** {@link Periodic} is the handle of a command scheduled with {@link Overlap}, counting its ticks. */
+  public final static class Periodic implements Runnable {
+    private static final int IDLE = 0;
+    private static final int RUNNING = 1;
+    private static final int PENDING = 2;
+
+    private final Runnable command;
+    private final long period;
+    private final Overlap overlap;
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+
+    private volatile ScheduledFuture<?> future;
+    private volatile long pendingSince;
+
+    private Periodic(final Runnable command, final long period, final Overlap overlap) {
+      this.command = command;
+      this.period = period;
+      this.overlap = overlap;
+    }
+
+    /** Fired by scheduler on every tick. */
+    @Override
+    public void run() {
+      ticks.incrementAndGet();
+      switch (overlap) {
+        case ALLOW:
+          submit();
+          return;
+        case SKIP:
+          if (state.compareAndSet(IDLE, RUNNING)) submit();
+          else skipped.incrementAndGet();
+          return;
+        case COALESCE:
+          for (; ; ) {
+            if (state.compareAndSet(IDLE, RUNNING)) {
+              submit();
+              return;
+            }
+            if (state.get() == PENDING) {
+              coalesced.incrementAndGet();
+              return;
+            }
+            // written before state changed to PENDING, which only ticks do, and ticks never overlap.
+            pendingSince = System.nanoTime();
+            if (state.compareAndSet(RUNNING, PENDING)) {
+              coalesced.incrementAndGet();
+              return;
+            }
+          }
+      }
+    }
+
+    /** @return ticks fired by scheduler. */
+    public long ticks() { return ticks.get(); }
+
+    /** @return ticks dropped in {@link Overlap#SKIP}, or for the executor was full in any overlap. */
+    public long skipped() { return skipped.get(); }
+
+    /** @return ticks merged into a pending execution in {@link Overlap#COALESCE}. */
+    public long coalesced() { return coalesced.get(); }
+
+    /** @return ticks whose execution started after the next tick should have been fired. */
+    public long late() { return late.get(); }
+
+    /** @see ScheduledFuture#cancel(boolean) */
+    public boolean cancel(final boolean mayInterruptIfRunning) { return future.cancel(mayInterruptIfRunning); }
+
+    public ScheduledFuture<?> future() { return future; }
+
+    private void submit() { submit(System.nanoTime()); }
+
+    private void submit(final long tickedAt) {
+      try {
+        EXECUTOR.execute(new Execution(tickedAt));
+      } catch (final RejectedExecutionException e) {
+        skipped.incrementAndGet();
+        if (overlap != Overlap.ALLOW) state.set(IDLE); // nothing in flight, or it would be RUNNING forever.
+      }
+    }
+
+    private void done() {
+      if (overlap == Overlap.ALLOW) return;
+      if (state.compareAndSet(RUNNING, IDLE)) return;
+      final long tickedAt = pendingSince; // state is PENDING, so it was written and would not be overwritten.
+      if (state.compareAndSet(PENDING, RUNNING)) submit(tickedAt);
+    }
+
+    /** {@link Execution} */
+    private final class Execution implements Runnable {
+      private final long tickedAt;
+
+      private Execution(final long tickedAt) {this.tickedAt = tickedAt;}
+
+      @Override
+      public void run() {
+        if (System.nanoTime() - tickedAt > period) late.incrementAndGet();
+        try {
+          command.run();
+        } finally {
+          done();
+        }
+      }
+    }
   }
 
+  private final static InstrumentedThreadFactory INSTRUMENTED;
   private final static ExecutorService EXECUTOR;
   private final static ScheduledExecutorService SCHEDULER;
 }
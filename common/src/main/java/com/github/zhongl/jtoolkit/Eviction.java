@@ -0,0 +1,24 @@
+package com.github.zhongl.jtoolkit;
+
+/**
+ * {@link Eviction} decides which key should be evicted from a {@link BoundedRepository}.
+ * <p/>
+ * All methods are invoked under the lock of repository, so implementation need not to be thread safe.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ * @see Evictions
+ */
+public interface Eviction<K> {
+
+  /** Key has been hit, it may be removed already. */
+  void onAccess(K key);
+
+  /** Key has been inserted. */
+  void onInsert(K key);
+
+  /** Key has been removed not by this eviction, e.g. expired or invalidated. */
+  void onRemove(K key);
+
+  /** @return key should be evicted, or null if there is no need to evict any more. */
+  K evict();
+}
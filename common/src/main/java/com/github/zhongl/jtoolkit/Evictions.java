@@ -0,0 +1,185 @@
+package com.github.zhongl.jtoolkit;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * {@link Evictions} creates {@link Eviction}s.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class Evictions {
+  private Evictions() {}
+
+  /** @return least recently used eviction. */
+  public static <K> Eviction<K> lru(final int capacity) { return new Lru<K>(capacity); }
+
+  /**
+   * @return W-TinyLFU style eviction, a small LRU window admits new keys, and keys leaving the window should be more
+   *         frequent than the victim of main LRU to stay.
+   */
+  public static <K> Eviction<K> tinyLfu(final int capacity) { return new TinyLfu<K>(capacity); }
+
+  private static void checkCapacity(final int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException("Capacity should be greater than 0.");
+  }
+
+  private static <K> LinkedHashMap<K, Boolean> accessOrderedKeys() {
+    return new LinkedHashMap<K, Boolean>(16, 0.75f, true);
+  }
+
+  private static <K> K eldest(final LinkedHashMap<K, Boolean> keys) {
+    return keys.isEmpty() ? null : keys.keySet().iterator().next();
+  }
+
+  private static <K> K removeEldest(final LinkedHashMap<K, Boolean> keys) {
+    if (keys.isEmpty()) return null;
+    final Iterator<K> iterator = keys.keySet().iterator();
+    final K key = iterator.next();
+    iterator.remove();
+    return key;
+  }
+
+  /** {@link Lru} */
+  private static final class Lru<K> implements Eviction<K> {
+    private final int capacity;
+    private final LinkedHashMap<K, Boolean> keys = accessOrderedKeys();
+
+    private Lru(final int capacity) {
+      checkCapacity(capacity);
+      this.capacity = capacity;
+    }
+
+    @Override
+    public void onAccess(final K key) { keys.get(key); }
+
+    @Override
+    public void onInsert(final K key) { keys.put(key, Boolean.TRUE); }
+
+    @Override
+    public void onRemove(final K key) { keys.remove(key); }
+
+    @Override
+    public K evict() { return keys.size() > capacity ? removeEldest(keys) : null; }
+  }
+
+  /** {@link TinyLfu} */
+  private static final class TinyLfu<K> implements Eviction<K> {
+    private final int capacity;
+    private final int windowCapacity;
+    private final LinkedHashMap<K, Boolean> window = accessOrderedKeys();
+    private final LinkedHashMap<K, Boolean> main = accessOrderedKeys();
+    private final FrequencySketch sketch;
+
+    /** Key moved from window to main recently, which should win the victim of main to stay. */
+    private K candidate;
+
+    private TinyLfu(final int capacity) {
+      checkCapacity(capacity);
+      this.capacity = capacity;
+      this.windowCapacity = Math.max(1, capacity / 100);
+      this.sketch = new FrequencySketch(capacity);
+    }
+
+    @Override
+    public void onAccess(final K key) {
+      sketch.increment(key.hashCode());
+      if (window.get(key) == null) main.get(key);
+    }
+
+    @Override
+    public void onInsert(final K key) {
+      sketch.increment(key.hashCode());
+      window.put(key, Boolean.TRUE);
+      if (window.size() <= windowCapacity) return;
+      candidate = removeEldest(window);
+      main.put(candidate, Boolean.TRUE);
+    }
+
+    @Override
+    public void onRemove(final K key) {
+      if (window.remove(key) == null) main.remove(key);
+      if (key.equals(candidate)) candidate = null;
+    }
+
+    @Override
+    public K evict() {
+      if (window.size() + main.size() <= capacity) return null;
+      final K victim = eldest(main);
+      if (victim == null) return removeEldest(window);
+
+      final K evicted;
+      if (candidate == null || candidate.equals(victim)) evicted = victim;
+      else evicted = sketch.frequency(candidate.hashCode()) > sketch.frequency(victim.hashCode()) ? victim : candidate;
+
+      main.remove(evicted);
+      candidate = null;
+      return evicted;
+    }
+  }
+
+  /** {@link FrequencySketch} is a count-min sketch of 4-bit counters, which would be halved periodically for aging. */
+  static final class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+        0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+
+    private int additions;
+
+    FrequencySketch(final int capacity) {
+      int size = 16;
+      while (size < capacity && size < (1 << 30)) size <<= 1;
+      table = new long[size];
+      mask = size - 1;
+      sampleSize = capacity > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : capacity * 10;
+    }
+
+    int frequency(final int hashCode) {
+      final int hash = spread(hashCode);
+      final int start = (hash & 3) << 2;
+      int frequency = 15;
+      for (int i = 0; i < 4; i++) {
+        final int count = (int) ((table[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    void increment(final int hashCode) {
+      final int hash = spread(hashCode);
+      final int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++) added |= incrementAt(indexOf(hash, i), start + i);
+      if (added && ++additions == sampleSize) reset();
+    }
+
+    private boolean incrementAt(final int index, final int counter) {
+      final int offset = counter << 2;
+      final long counterMask = 0xfL << offset;
+      if ((table[index] & counterMask) == counterMask) return false;
+      table[index] += 1L << offset;
+      return true;
+    }
+
+    private void reset() {
+      for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & RESET_MASK;
+      additions >>>= 1;
+    }
+
+    private int indexOf(final int hash, final int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return ((int) h) & mask;
+    }
+
+    private static int spread(int x) {
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      return (x >>> 16) ^ x;
+    }
+  }
+}
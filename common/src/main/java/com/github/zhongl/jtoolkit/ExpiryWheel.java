@@ -0,0 +1,191 @@
+package com.github.zhongl.jtoolkit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ExpiryWheel} buckets entries by coarse expiry tick of {@link SystemClock}, instead of scanning all of them for
+ * TTL checking.
+ * <p/>
+ * Each bucket is an intrusive linked list of {@link Node}s, so touching an entry only relinks its node, and an entry
+ * costs one small node. Entries expire no earlier than their time-to-live, but may be late by one tick.
+ * <p/>
+ * {@link #expire()} is supposed to be scheduled every tick, it would only visit buckets passed since last time. An entry
+ * living longer than the span of wheel would stay in its bucket for rounds, so buckets should be enough to span the
+ * common time-to-live.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public class ExpiryWheel<E> {
+  private static final long UNLINKED = Long.MIN_VALUE;
+
+  /** Tick is precision of clock, and 4096 buckets. */
+  public ExpiryWheel(final SystemClock clock, final Listener<E> listener) {
+    this(clock, clock.precision(), TimeUnit.MILLISECONDS, 4096, listener);
+  }
+
+  /**
+   * @param clock
+   * @param tick     duration of a bucket, at least one millisecond.
+   * @param unit
+   * @param buckets  should be power of 2.
+   * @param listener would be notified out of lock after entries expired.
+   */
+  @SuppressWarnings("unchecked")
+  public ExpiryWheel(final SystemClock clock, final long tick, final TimeUnit unit, final int buckets,
+                     final Listener<E> listener) {
+    if (unit.toMillis(tick) < 1L) throw new IllegalArgumentException("Tick should be one millisecond at least.");
+    if (buckets < 1 || Integer.bitCount(buckets) != 1)
+      throw new IllegalArgumentException("Buckets should be power of 2.");
+    this.clock = clock;
+    this.tickMillis = unit.toMillis(tick);
+    this.listener = listener;
+    this.wheel = (Node<E>[]) new Node<?>[buckets];
+    this.mask = buckets - 1;
+    this.current = clock.now() / tickMillis;
+  }
+
+  /** @return node of element, which can be touched or cancelled later. */
+  public final Node<E> schedule(final E element, final long ttl, final TimeUnit unit) {
+    final Node<E> node = new Node<E>(element);
+    final long tick = tickOf(ttl, unit);
+    lock.lock();
+    try {
+      link(node, Math.max(tick, current + 1));
+      size++;
+    } finally {
+      lock.unlock();
+    }
+    return node;
+  }
+
+  /**
+   * Reset time-to-live of node from now on, its node would not be moved if it stays in the same tick.
+   *
+   * @return false if it was expired or cancelled.
+   */
+  public final boolean touch(final Node<E> node, final long ttl, final TimeUnit unit) {
+    final long tick = tickOf(ttl, unit);
+    // tick is volatile and an expired or cancelled node is marked UNLINKED, so a stale tick would never be seen here,
+    // and the same tick means it was alive and would not expire earlier than asked.
+    if (node.tick == tick) return true;
+    lock.lock();
+    try {
+      if (node.tick == UNLINKED) return false;
+      unlink(node);
+      link(node, Math.max(tick, current + 1));
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** @return false if it was expired or cancelled. */
+  public final boolean cancel(final Node<E> node) {
+    lock.lock();
+    try {
+      if (node.tick == UNLINKED) return false;
+      unlink(node);
+      node.tick = UNLINKED;
+      size--;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Expire entries of buckets passed since last time, and notify listener.
+   *
+   * @return number of expired entries.
+   */
+  public final int expire() {
+    final long now = clock.now() / tickMillis;
+    final List<E> expired = new ArrayList<E>();
+    lock.lock();
+    try {
+      final long passed = Math.min(now - current, wheel.length);
+      for (long i = 1; i <= passed; i++) expire((int) ((current + i) & mask), now, expired);
+      if (now > current) current = now;
+      size -= expired.size();
+    } finally {
+      lock.unlock();
+    }
+    if (listener != null) for (final E element : expired) listener.onExpired(element);
+    return expired.size();
+  }
+
+  /** @return number of scheduled entries. */
+  public final int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void expire(final int bucket, final long now, final List<E> expired) {
+    Node<E> node = wheel[bucket];
+    while (node != null) {
+      final Node<E> next = node.next;
+      if (node.tick <= now) {
+        unlink(node);
+        node.tick = UNLINKED;
+        expired.add(node.element);
+      }
+      node = next;
+    }
+  }
+
+  private long tickOf(final long ttl, final TimeUnit unit) {
+    final long expireAt = clock.now() + unit.toMillis(ttl);
+    return (expireAt + tickMillis - 1) / tickMillis; // round up to never expire early.
+  }
+
+  private void link(final Node<E> node, final long tick) {
+    final int bucket = (int) (tick & mask);
+    node.tick = tick;
+    node.prev = null;
+    node.next = wheel[bucket];
+    if (node.next != null) node.next.prev = node;
+    wheel[bucket] = node;
+  }
+
+  private void unlink(final Node<E> node) {
+    if (node.prev == null) wheel[((int) (node.tick & mask))] = node.next;
+    else node.prev.next = node.next;
+    if (node.next != null) node.next.prev = node.prev;
+    node.prev = null;
+    node.next = null;
+  }
+
+  private final SystemClock clock;
+  private final long tickMillis;
+  private final Listener<E> listener;
+  private final Node<E>[] wheel;
+  private final int mask;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private long current;
+  private int size;
+
+  /** {@link Listener} is notified after entries expired. */
+  public static interface Listener<E> {
+    void onExpired(E element);
+  }
+
+  /** {@link Node} links a scheduled element in its bucket. */
+  public static final class Node<E> {
+    private final E element;
+    private volatile long tick; // written under lock only, read without lock by touch.
+    private Node<E> prev;
+    private Node<E> next;
+
+    private Node(final E element) {this.element = element;}
+
+    public E element() { return element; }
+  }
+}
@@ -2,68 +2,53 @@ package com.github.zhongl.jtoolkit;
 
 import java.io.*;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 
 /**
  * IDPoolBaseOnFile is a pool for reusing a set of num id, and can be persisted in a file.
+ * <p/>
+ * The file is mapped by {@link MappedSegments}, and would be unmapped on {@link #dispose()}, after which all operations
+ * would be rejected by {@link IllegalStateException}.
  *
  * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
  */
 public class IDPoolBaseOnFile {
   private final int capacity;
-  private final RandomAccessFile raf;
+  private final MappedSegments segments;
+  private final MappedSegments.Segment segment;
   private final ByteBuffer bits;
 
   private int inUsed = 0;
+  private boolean disposed;
 
   public IDPoolBaseOnFile(int capacity, String file) throws IOException {
     this.capacity = capacity;
-    raf = new RandomAccessFile(file, "rwd");
+    segments = new MappedSegments(new File(file), Math.max(1, alignAt8(capacity)));
     try {
-      setFileLength(alignAt8(capacity));
-      bits = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+      segment = segments.acquire(0L);
     } catch (IOException e) {
-      dispose();
+      segments.close();
       throw e;
     }
+    bits = segment.buffer();
+    for (int i = 0; i < alignAt8(capacity); i++) inUsed += Integer.bitCount(bits.get(i) & 0xff); // persisted
   }
 
-  public static void main(String... args) throws Exception {
-    final String file = args[0];
-    final int size = Integer.parseInt(args[1]);
-    final IDPoolBaseOnFile pool = new IDPoolBaseOnFile(size, file);
-
-    long elapse = 0;
-
-    for (int i = 0; i < size; i++) {
-      long begin = System.nanoTime();
-      pool.acquire();
-      elapse += System.nanoTime() - begin;
-    }
-
-    System.out.println(elapse / size);
-    elapse = 0;
-
-    for (int i = 0; i < pool.capacity; i++) {
-      long begin = System.nanoTime();
-      pool.release(i);
-      elapse += System.nanoTime() - begin;
-    }
-    System.out.println(elapse / size);
-
-    System.out.println(pool.bits.equals(ByteBuffer.wrap(new byte[alignAt8(size)])));
-    pool.dispose();
-
+  public synchronized void dispose() {
+    if (disposed) return;
+    disposed = true;
+    segment.release();
+    try { segments.close(); } catch (IOException e) {}
   }
 
-  public synchronized void dispose() { if (raf != null) try { raf.close(); } catch (IOException e) {} }
-
   /**
    * Release id to pool.
    *
    * @param id
    */
-  public synchronized void release(int id) { if (set(id, false)) inUsed--; }
+  public synchronized void release(int id) {
+    checkNotDisposed();
+    if (set(id, false)) inUsed--;
+  }
 
   /**
    * Acquire a id from pool.
@@ -71,6 +56,7 @@ public class IDPoolBaseOnFile {
    * @return id
    */
   public synchronized int acquire() {
+    checkNotDisposed();
     if (inUsed == capacity) throw new IllegalStateException("No more id for acquisition.");
     for (; ;) {
       final int id = nextId();
@@ -88,12 +74,16 @@ public class IDPoolBaseOnFile {
    *
    * @param id
    */
-  public synchronized void acquire(int id) { if (set(id, true)) inUsed++; }
+  public synchronized void acquire(int id) {
+    checkNotDisposed();
+    if (set(id, true)) inUsed++;
+  }
 
   /** Reset state to init. */
   public synchronized void reset() {
+    checkNotDisposed();
+    for (int i = 0; i < capacity; i++) set(i, false);
     inUsed = 0;
-    for (int i = 0; i < capacity; i++) release(i);
   }
 
   private static int alignAt8(int num) {return num / 8 + (num % 8 == 0 ? 0 : 1);}
@@ -102,8 +92,6 @@ public class IDPoolBaseOnFile {
 
   private static int index(int id) { return id / 8; }
 
-  private void setFileLength(int length) throws IOException {if (raf.length() < length) raf.setLength(length);}
-
   /**
    * Set index bit to 0 or 1.
    *
@@ -113,6 +101,7 @@ public class IDPoolBaseOnFile {
    * @return false means no change.
    */
   private boolean set(int id, boolean b) {
+    checkNotDisposed();
     if (id < 0 || id >= capacity) throw new IllegalArgumentException("id : " + id);
     final byte o = bits.get(index(id));
     final byte n = b ? (byte) (o | bit(id)) : (byte) (o & ~bit(id));
@@ -120,5 +109,10 @@ public class IDPoolBaseOnFile {
     return o != n;
   }
 
+  /** bits would be unmapped after disposed, touching them may crash the JVM. */
+  private void checkNotDisposed() {
+    if (disposed) throw new IllegalStateException("Pool has been disposed.");
+  }
+
   private int nextId() { return (int) (System.nanoTime() % capacity); }
 }
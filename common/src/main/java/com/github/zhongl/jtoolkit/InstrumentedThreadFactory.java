@@ -0,0 +1,237 @@
+package com.github.zhongl.jtoolkit;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Predicate;
+
+/**
+ * {@link InstrumentedThreadFactory} records telemetry of threads it created, to tell which threads of a pool are busy,
+ * blocked or idle without thread dump.
+ * <p/>
+ * Tasks are counted by {@link #taskStarted()} and {@link #taskFinished()}, which are called by {@link CentralExecutor}
+ * and {@link Events} around each task, and cost a thread local lookup and a read of {@link System#nanoTime()}, since
+ * {@link SystemClock} is too coarse for short tasks. Cpu time, allocated bytes, blocked and waited time are sampled by
+ * {@link ThreadMXBean} in {@link #snapshot()}, no more than once an interval measured by {@link SystemClock}.
+ * <p/>
+ * Blocked and waited time need thread contention monitoring, which is disabled by default and costs every thread of
+ * the JVM, so it would be enabled only if asked by constructor, otherwise they are -1 unless enabled by others.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class InstrumentedThreadFactory implements ThreadFactory {
+  private static final ThreadLocal<Record> CURRENT = new ThreadLocal<Record>();
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final Predicate<Record> TERMINATED = new Predicate<Record>() {
+    @Override
+    public boolean test(final Record record) { return record.thread.getState() == Thread.State.TERMINATED; }
+  };
+
+  /** Threads created by {@link DebugableThreadFactory}, sampled no more than once a second. */
+  public InstrumentedThreadFactory(final String name, final boolean daemon) {
+    this(new DebugableThreadFactory(name, daemon), SystemClock.shared(10L), 1000L);
+  }
+
+  /** Without enabling thread contention monitoring. */
+  public InstrumentedThreadFactory(final ThreadFactory delegate, final SystemClock clock, final long interval) {
+    this(delegate, clock, interval, false);
+  }
+
+  /**
+   * @param delegate   creates threads.
+   * @param clock      measures interval of sampling.
+   * @param interval   in milliseconds, 0 means sampling on every {@link #snapshot()}.
+   * @param contention enables thread contention monitoring of the JVM if supported, for blocked and waited time.
+   */
+  public InstrumentedThreadFactory(final ThreadFactory delegate, final SystemClock clock, final long interval,
+                                   final boolean contention) {
+    if (interval < 0L) throw new IllegalArgumentException("Interval should not be negative.");
+    this.delegate = delegate;
+    this.clock = clock;
+    this.interval = interval;
+    if (contention && THREADS.isThreadContentionMonitoringSupported() && !THREADS.isThreadContentionMonitoringEnabled())
+      THREADS.setThreadContentionMonitoringEnabled(true);
+  }
+
+  @Override
+  public Thread newThread(final Runnable r) {
+    prune();
+    final Record record = new Record();
+    final Thread thread = delegate.newThread(new Runnable() {
+      @Override
+      public void run() {
+        CURRENT.set(record);
+        try {
+          r.run();
+        } finally {
+          CURRENT.remove();
+        }
+      }
+    });
+    record.thread = thread;
+    records.add(record);
+    return thread;
+  }
+
+  /** Mark current thread busy, it does nothing if the thread is not instrumented. */
+  public static void taskStarted() {
+    final Record record = CURRENT.get();
+    if (record != null) record.started();
+  }
+
+  /** Mark current thread idle, it does nothing if the thread is not instrumented. */
+  public static void taskFinished() {
+    final Record record = CURRENT.get();
+    if (record != null) record.finished();
+  }
+
+  /** @return telemetry of live threads, which is sampled in last interval. */
+  public List<ThreadTelemetry> snapshot() {
+    final Sample last = sample;
+    if (last != null && clock.now() - last.sampledAt < interval) return last.telemetry;
+    synchronized (this) {
+      if (sample != last) return sample.telemetry;
+      sample = new Sample(clock.now(), sampleAll());
+      return sample.telemetry;
+    }
+  }
+
+  private List<ThreadTelemetry> sampleAll() {
+    prune();
+    final List<ThreadTelemetry> telemetry = new ArrayList<ThreadTelemetry>(records.size());
+    for (final Record record : records) {
+      if (record.thread.getState() != Thread.State.NEW) telemetry.add(record.sample());
+    }
+    return Collections.unmodifiableList(telemetry);
+  }
+
+  /** Remove records of terminated threads by one copy, so they would not pile up even if never sampled. */
+  private void prune() {
+    records.removeIf(TERMINATED);
+  }
+
+  private final ThreadFactory delegate;
+  private final SystemClock clock;
+  private final long interval;
+  private final List<Record> records = new CopyOnWriteArrayList<Record>();
+
+  private volatile Sample sample;
+
+  /** {@link ThreadTelemetry} is an immutable sample of a thread, of which unavailable metrics are -1. */
+  public static final class ThreadTelemetry {
+    private final String name;
+    private final long id;
+    private final Thread.State state;
+    private final boolean busy;
+    private final long tasks;
+    private final long busyMillis;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final long blockedCount;
+    private final long blockedMillis;
+    private final long waitedCount;
+    private final long waitedMillis;
+
+    private ThreadTelemetry(final Thread thread, final ThreadInfo info, final boolean busy, final long tasks,
+                            final long busyMillis, final long cpuNanos, final long allocatedBytes) {
+      this.name = thread.getName();
+      this.id = thread.getId();
+      this.state = info == null ? thread.getState() : info.getThreadState();
+      this.busy = busy;
+      this.tasks = tasks;
+      this.busyMillis = busyMillis;
+      this.cpuNanos = cpuNanos;
+      this.allocatedBytes = allocatedBytes;
+      this.blockedCount = info == null ? -1L : info.getBlockedCount();
+      this.blockedMillis = info == null ? -1L : info.getBlockedTime();
+      this.waitedCount = info == null ? -1L : info.getWaitedCount();
+      this.waitedMillis = info == null ? -1L : info.getWaitedTime();
+    }
+
+    public String name() { return name; }
+
+    public long id() { return id; }
+
+    public Thread.State state() { return state; }
+
+    /** @return true if it was running a task. */
+    public boolean busy() { return busy; }
+
+    /** @return number of tasks finished. */
+    public long tasks() { return tasks; }
+
+    /** @return time spent in tasks, including the running one. */
+    public long busyMillis() { return busyMillis; }
+
+    public long cpuNanos() { return cpuNanos; }
+
+    public long allocatedBytes() { return allocatedBytes; }
+
+    public long blockedCount() { return blockedCount; }
+
+    public long blockedMillis() { return blockedMillis; }
+
+    public long waitedCount() { return waitedCount; }
+
+    public long waitedMillis() { return waitedMillis; }
+
+    @Override
+    public String toString() {
+      return "ThreadTelemetry{name=" + name + ", state=" + state + ", busy=" + busy + ", tasks=" + tasks
+          + ", busyMillis=" + busyMillis + ", cpuNanos=" + cpuNanos + ", allocatedBytes=" + allocatedBytes
+          + ", blockedCount=" + blockedCount + ", blockedMillis=" + blockedMillis + ", waitedCount=" + waitedCount
+          + ", waitedMillis=" + waitedMillis + '}';
+    }
+  }
+
+  /** {@link Record} is written by its thread only, and read by sampling. */
+  private static final class Record {
+    private static final long IDLE = Long.MIN_VALUE; // nano time may be negative
+    private Thread thread;
+    private volatile long tasks;
+    private volatile long busyNanos;
+    private volatile long startedAt = IDLE;
+
+    void started() { startedAt = System.nanoTime(); }
+
+    void finished() {
+      if (startedAt == IDLE) return;
+      busyNanos += System.nanoTime() - startedAt; // single writer
+      startedAt = IDLE;
+      tasks++;
+    }
+
+    ThreadTelemetry sample() {
+      final long id = thread.getId();
+      final long started = startedAt;
+      final long running = started == IDLE ? 0L : System.nanoTime() - started;
+      final ThreadInfo info = THREADS.getThreadInfo(id);
+      final long cpu = THREADS.isThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()
+          ? THREADS.getThreadCpuTime(id) : -1L;
+      return new ThreadTelemetry(thread, info, started != IDLE, tasks, (busyNanos + running) / 1000000L, cpu,
+                                 allocatedBytes(id));
+    }
+  }
+
+  private static long allocatedBytes(final long id) {
+    if (!(THREADS instanceof com.sun.management.ThreadMXBean)) return -1L;
+    final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+    if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) return -1L;
+    return threads.getThreadAllocatedBytes(id);
+  }
+
+  private static final class Sample {
+    private final long sampledAt;
+    private final List<ThreadTelemetry> telemetry;
+
+    private Sample(final long sampledAt, final List<ThreadTelemetry> telemetry) {
+      this.sampledAt = sampledAt;
+      this.telemetry = telemetry;
+    }
+  }
+}
@@ -1,30 +1,216 @@
 package com.github.zhongl.jtoolkit;
 
+import java.io.Closeable;
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * {@link LoggingUncaughtExceptionHandler
+ * {@link LoggingUncaughtExceptionHandler} logs uncaught exceptions by a daemon thread, so the failing thread never waits
+ * for logging I/O.
+ * <p/>
+ * Exceptions are deduplicated by fingerprint, which is the classes and top stack frames of an exception and its causes.
+ * No more than <code>limit</code> exceptions of a fingerprint are logged in an interval, the others are suppressed and
+ * counted, and the count would be appended to the next one logged. An exception would be dropped and counted if the
+ * queue of logging is full. Exceptions queued are logged by a shutdown hook before JVM exits.
+ *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  * @created 2010-11-25
  */
-public final class LoggingUncaughtExceptionHandler implements UncaughtExceptionHandler {
+public final class LoggingUncaughtExceptionHandler implements UncaughtExceptionHandler, Closeable {
 
   private final static Logger LOGGER = LoggerFactory.getLogger("ThreadUncaughtException");
 
-  public final static UncaughtExceptionHandler SINGLETON = new LoggingUncaughtExceptionHandler();
+  /** Logs no more than 5 exceptions of a fingerprint in 10 seconds. */
+  public final static UncaughtExceptionHandler SINGLETON = new LoggingUncaughtExceptionHandler(5, 10000L, 1024);
 
-  private LoggingUncaughtExceptionHandler() {}
+  private static final int FRAMES = 8;
+  private static final int CAUSES = 4;
+  private static final int MAX_FINGERPRINTS = 1024;
+
+  /**
+   * @param limit    of exceptions of a fingerprint logged in an interval.
+   * @param interval in milliseconds.
+   * @param capacity of queue of exceptions to log.
+   */
+  public LoggingUncaughtExceptionHandler(final int limit, final long interval, final int capacity) {
+    if (limit < 1) throw new IllegalArgumentException("Limit should be greater than 0.");
+    if (interval < 1L) throw new IllegalArgumentException("Interval should be greater than 0.");
+    this.limit = limit;
+    this.interval = TimeUnit.MILLISECONDS.toNanos(interval);
+    this.queue = new ArrayBlockingQueue<Record>(capacity);
+    // not by DebugableThreadFactory, which refers to SINGLETON in initializing.
+    this.writer = new Thread(new Runnable() {
+      @Override
+      public void run() { write(); }
+    }, "uncaught-exception-logger");
+    writer.setDaemon(true);
+    writer.start();
+    this.drainer = new Thread(new Runnable() {
+      @Override
+      public void run() { drain(); }
+    }, "uncaught-exception-drainer");
+    Runtime.getRuntime().addShutdownHook(drainer);
+  }
 
   @Override
   public void uncaughtException(final Thread t, final Throwable e) {
+    Throwable logged = e;
     if (e instanceof RuntimeException && e.getCause() != null) {
       if (e.getCause() instanceof InterruptedException) Thread.currentThread().interrupt();
-      LOGGER.error(t.getName(), e.getCause());
+      logged = e.getCause();
+    }
+    uncaught.incrementAndGet();
+    final Fingerprint fingerprint = fingerprintOf(logged);
+    fingerprint.occurrences.incrementAndGet();
+    if (!fingerprint.tryAcquire(System.nanoTime(), limit, interval)) {
+      fingerprint.suppressed.incrementAndGet();
+      fingerprint.pending.incrementAndGet();
+      suppressed.incrementAndGet();
       return;
     }
-    LOGGER.error(t.getName(), e);
+    final long pending = fingerprint.pending.getAndSet(0L);
+    if (queue.offer(new Record(t.getName(), logged, pending))) return;
+    fingerprint.pending.addAndGet(pending); // carried by the next one logged.
+    dropped.incrementAndGet();
+  }
+
+  /** @return number of uncaught exceptions handled. */
+  public long uncaught() { return uncaught.get(); }
+
+  /** @return number of exceptions logged. */
+  public long logged() { return logged.get(); }
+
+  /** @return number of exceptions suppressed by rate limit. */
+  public long suppressed() { return suppressed.get(); }
+
+  /** @return number of exceptions dropped for queue is full. */
+  public long dropped() { return dropped.get(); }
+
+  /**
+   * @return occurrences by fingerprint, described by class of exception and its top frame, fingerprints beyond 1024
+   *         are counted as <code>other</code>.
+   */
+  public Map<String, Long> occurrences() {
+    final Map<String, Long> occurrences = new TreeMap<String, Long>();
+    for (final Fingerprint fingerprint : fingerprints.values()) {
+      final Long count = occurrences.get(fingerprint.description);
+      occurrences.put(fingerprint.description, fingerprint.occurrences.get() + (count == null ? 0L : count));
+    }
+    if (other.occurrences.get() > 0L) occurrences.put(other.description, other.occurrences.get());
+    return Collections.unmodifiableMap(occurrences);
+  }
+
+  /**
+   * Stop logging, exceptions queued would be discarded.
+   *
+   * @throws IllegalStateException if it is {@link #SINGLETON}, which is shared by the whole JVM.
+   */
+  @Override
+  public void close() {
+    if (this == SINGLETON) throw new IllegalStateException("Shared handler can not be closed.");
+    try {
+      Runtime.getRuntime().removeShutdownHook(drainer);
+    } catch (IllegalStateException e) {
+      // shutting down
+    }
+    writer.interrupt();
+  }
+
+  private Fingerprint fingerprintOf(final Throwable e) {
+    final Long hash = hash(e);
+    final Fingerprint fingerprint = fingerprints.get(hash);
+    if (fingerprint != null) return fingerprint;
+    if (fingerprints.size() >= MAX_FINGERPRINTS) return other;
+    final StackTraceElement[] frames = e.getStackTrace();
+    final Fingerprint created = new Fingerprint(e.getClass().getName() + (frames.length == 0 ? "" : " at " + frames[0]));
+    final Fingerprint existed = fingerprints.putIfAbsent(hash, created);
+    return existed == null ? created : existed;
+  }
+
+  private static long hash(final Throwable e) {
+    long hash = 17L;
+    Throwable cause = e;
+    for (int i = 0; cause != null && i < CAUSES; i++, cause = cause.getCause()) {
+      hash = 31L * hash + cause.getClass().getName().hashCode();
+      final StackTraceElement[] frames = cause.getStackTrace();
+      for (int j = 0; j < Math.min(FRAMES, frames.length); j++) hash = 31L * hash + frames[j].hashCode();
+    }
+    return hash;
+  }
+
+  private void write() {
+    try {
+      for (; ; ) log(queue.take());
+    } catch (InterruptedException e) {
+      // closed
+    }
+  }
+
+  private void drain() {
+    for (Record record = queue.poll(); record != null; record = queue.poll()) log(record);
+  }
+
+  private void log(final Record record) {
+    try {
+      if (record.suppressed == 0L) LOGGER.error(record.thread, record.throwable);
+      else LOGGER.error(record.thread + " (" + record.suppressed + " similar suppressed)", record.throwable);
+      logged.incrementAndGet();
+    } catch (Throwable t) {
+      // a broken appender or toString of exception should not stop logging the others.
+    }
+  }
+
+  private final int limit;
+  private final long interval;
+  private final BlockingQueue<Record> queue;
+  private final Thread writer;
+  private final Thread drainer;
+  private final ConcurrentMap<Long, Fingerprint> fingerprints = new ConcurrentHashMap<Long, Fingerprint>();
+  private final Fingerprint other = new Fingerprint("other");
+  private final AtomicLong uncaught = new AtomicLong();
+  private final AtomicLong logged = new AtomicLong();
+  private final AtomicLong suppressed = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  /** {@link Fingerprint} counts exceptions of it, and limits rate of logging by a fixed window. */
+  private static final class Fingerprint {
+    private final String description;
+    private final AtomicLong occurrences = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong(); // suppressed since last logged
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger inWindow = new AtomicInteger();
+
+    private Fingerprint(final String description) {this.description = description;}
+
+    boolean tryAcquire(final long now, final int limit, final long interval) {
+      final long start = windowStart.get();
+      if (now - start >= interval && windowStart.compareAndSet(start, now)) inWindow.set(0);
+      return inWindow.incrementAndGet() <= limit;
+    }
+  }
+
+  private static final class Record {
+    private final String thread;
+    private final Throwable throwable;
+    private final long suppressed;
+
+    private Record(final String thread, final Throwable throwable, final long suppressed) {
+      this.thread = thread;
+      this.throwable = throwable;
+      this.suppressed = suppressed;
+    }
   }
 }
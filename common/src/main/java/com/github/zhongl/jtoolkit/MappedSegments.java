@@ -0,0 +1,179 @@
+package com.github.zhongl.jtoolkit;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * {@link MappedSegments} maps a file in fixed-size segments on demand, and unmaps a segment by
+ * {@link DirectByteBufferCleaner} as soon as it is released by all, instead of waiting for GC.
+ * <p/>
+ * At most max idle segments released by all would be kept mapped for reusing, the least recently released one would be
+ * unmapped first. A segment in use would be unmapped on its last releasing after closed.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class MappedSegments implements Closeable {
+  private static final AtomicIntegerFieldUpdater<Segment> RELEASED =
+      AtomicIntegerFieldUpdater.newUpdater(Segment.class, "released");
+
+  /** Read and write, without idle segments. */
+  public MappedSegments(final File file, final int segmentSize) throws IOException {
+    this(file, segmentSize, FileChannel.MapMode.READ_WRITE, 0);
+  }
+
+  /**
+   * @param file        would be extended by mapping in {@link FileChannel.MapMode#READ_WRITE}.
+   * @param segmentSize
+   * @param mode        {@link FileChannel.MapMode#READ_ONLY} or {@link FileChannel.MapMode#READ_WRITE}.
+   * @param maxIdle     number of segments kept mapped after released by all.
+   */
+  public MappedSegments(final File file, final int segmentSize, final FileChannel.MapMode mode, final int maxIdle)
+      throws IOException {
+    if (segmentSize < 1) throw new IllegalArgumentException("Segment size should be greater than 0.");
+    if (maxIdle < 0) throw new IllegalArgumentException("Max idle should not be negative.");
+    if (mode == FileChannel.MapMode.PRIVATE) throw new IllegalArgumentException("Private mode is not supported.");
+    this.segmentSize = segmentSize;
+    this.mode = mode;
+    this.maxIdle = maxIdle;
+    this.raf = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw");
+  }
+
+  /**
+   * @param position in file.
+   * @return segment contains position, which should be released after using.
+   * @throws IllegalStateException if it has been closed.
+   */
+  public synchronized Segment acquire(final long position) throws IOException {
+    if (closed) throw new IllegalStateException("Segments have been closed.");
+    if (position < 0L) throw new IllegalArgumentException("Position should not be negative.");
+    final long index = position / segmentSize;
+    Mapping mapping = mappings.get(index);
+    if (mapping == null) {
+      mapping = new Mapping(index, raf.getChannel().map(mode, index * segmentSize, segmentSize));
+      mappings.put(index, mapping);
+    } else if (mapping.references == 0) {
+      idle.remove(index);
+    }
+    mapping.references++;
+    return new Segment(mapping);
+  }
+
+  public int segmentSize() { return segmentSize; }
+
+  /** @return number of segments mapped, including idle ones. */
+  public synchronized int mapped() { return mappings.size(); }
+
+  /** Unmap idle segments and close file, those in use would be unmapped on releasing. */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) return;
+    closed = true;
+    for (final Iterator<Mapping> iterator = idle.values().iterator(); iterator.hasNext(); ) {
+      unmap(iterator.next());
+      iterator.remove();
+    }
+    raf.close();
+  }
+
+  private synchronized void release(final Mapping mapping) {
+    if (--mapping.references > 0) return;
+    if (closed || maxIdle == 0) {
+      unmap(mapping);
+      return;
+    }
+    idle.put(mapping.index, mapping);
+    if (idle.size() <= maxIdle) return;
+    final Iterator<Mapping> eldest = idle.values().iterator();
+    unmap(eldest.next());
+    eldest.remove();
+  }
+
+  private void unmap(final Mapping mapping) {
+    mappings.remove(mapping.index);
+    DirectByteBufferCleaner.clean(mapping.buffer);
+  }
+
+  private final int segmentSize;
+  private final FileChannel.MapMode mode;
+  private final int maxIdle;
+  private final RandomAccessFile raf;
+  private final Map<Long, Mapping> mappings = new HashMap<Long, Mapping>();
+  private final LinkedHashMap<Long, Mapping> idle = new LinkedHashMap<Long, Mapping>();
+
+  private boolean closed;
+
+  /** {@link Segment} is an acquisition of a mapped segment. */
+  public final class Segment implements Closeable {
+    private final Mapping mapping;
+    private final ByteBuffer buffer;
+    volatile int released; // updated by RELEASED
+
+    private Segment(final Mapping mapping) {
+      this.mapping = mapping;
+      this.buffer = mapping.buffer.duplicate();
+    }
+
+    /** @return buffer of the segment with its own position and limit, it should not be used after released. */
+    public ByteBuffer buffer() { return buffer; }
+
+    /** @return position of the segment in file. */
+    public long offset() { return mapping.index * segmentSize; }
+
+    /**
+     * Hint to load the segment into physical memory, it is like madvise with WILLNEED but synchronous.
+     *
+     * @throws IllegalStateException if it has been released.
+     */
+    public void prefetch() { mapped().load(); }
+
+    /**
+     * @return true if the segment is likely resident in physical memory.
+     * @throws IllegalStateException if it has been released.
+     */
+    public boolean isLoaded() { return mapped().isLoaded(); }
+
+    /**
+     * Write changes of the segment to storage.
+     *
+     * @throws IllegalStateException if it has been released.
+     */
+    public void force() { mapped().force(); }
+
+    /** @throws IllegalStateException if it has been released. */
+    public void release() {
+      if (!RELEASED.compareAndSet(this, 0, 1)) throw new IllegalStateException("Segment has been released.");
+      MappedSegments.this.release(mapping);
+    }
+
+    /** @return buffer of mapping, which would not be unmapped until this is released. */
+    private MappedByteBuffer mapped() {
+      if (released != 0) throw new IllegalStateException("Segment has been released.");
+      return mapping.buffer;
+    }
+
+    @Override
+    public void close() { release(); }
+  }
+
+  /** {@link Mapping} is a mapped segment shared by acquisitions, guarded by lock of {@link MappedSegments}. */
+  private static final class Mapping {
+    private final long index;
+    private final MappedByteBuffer buffer;
+    private int references;
+
+    private Mapping(final long index, final MappedByteBuffer buffer) {
+      this.index = index;
+      this.buffer = buffer;
+    }
+  }
+}
@@ -6,6 +6,8 @@ import java.util.concurrent.Callable;
 
 /**
  * {@link NamedThreadCallable} for debug.
+ * <p/>
+ * Renaming thread is expensive for high rate tasks, see {@link TaskContext} instead.
  *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  * @created 2010-11-12
@@ -25,9 +27,11 @@ public final class NamedThreadCallable<V> implements Callable<V> {
   public V call() throws Exception {
     final String old = currentThread().getName();
     currentThread().setName(name);
-    final V result = callable.call();
-    currentThread().setName(old);
-    return result;
+    try {
+      return callable.call();
+    } finally {
+      currentThread().setName(old);
+    }
   }
 
   private final Callable<V> callable;
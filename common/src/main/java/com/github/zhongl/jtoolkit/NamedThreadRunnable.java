@@ -4,6 +4,8 @@ import static java.lang.Thread.currentThread;
 
 /**
  * {@link NamedThreadRunnable} for debug.
+ * <p/>
+ * Renaming thread is expensive for high rate tasks, see {@link TaskContext} instead.
  *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  * @created 2010-11-12
@@ -23,8 +25,11 @@ public final class NamedThreadRunnable implements Runnable {
   public void run() {
     final String old = currentThread().getName();
     currentThread().setName(name);
-    runnable.run();
-    currentThread().setName(old);
+    try {
+      runnable.run();
+    } finally {
+      currentThread().setName(old);
+    }
   }
 
   private final Runnable runnable;
@@ -0,0 +1,337 @@
+package com.github.zhongl.jtoolkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link OffHeapRepository} gets or creates values like a {@link Repository}, but keeps created keys and values serialized
+ * out of heap, only creations in flight are on heap, so millions of entries would not burden GC.
+ * <p/>
+ * Records are appended to direct or memory-mapped chunks, and indexed by an open-addressing table of primitive longs,
+ * each slot of which packs a hash tag and the address of record. Lookups take no lock, but count themselves in a stripe
+ * of reader counts by thread, which {@link #dispose()} waits to be drained before releasing chunks. Appending is
+ * serialized by a lock. Entries can not be removed, and a failed creation would not be remembered.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public class OffHeapRepository<K, V> {
+  private static final int HEADER = 12; // hash, key length, value length
+  private static final int ADDRESS_BITS = 40;
+  private static final long ADDRESS_MASK = (1L << ADDRESS_BITS) - 1;
+  private static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+  private static final int PADDING = 16; // longs, so stripes of reader counts never share a cache line.
+
+  public OffHeapRepository(final Repository.Factory<K, V> factory, final Serializer<K> keySerializer,
+                           final Serializer<V> valueSerializer) {
+    this(factory, keySerializer, valueSerializer, Storage.direct(), DEFAULT_CHUNK_SIZE, 1024);
+  }
+
+  /**
+   * @param factory
+   * @param keySerializer
+   * @param valueSerializer
+   * @param storage         allocates chunks.
+   * @param chunkSize       should be power of 2, and no record could be larger than it.
+   * @param expectedSize    of entries, for sizing index initially.
+   */
+  public OffHeapRepository(final Repository.Factory<K, V> factory, final Serializer<K> keySerializer,
+                           final Serializer<V> valueSerializer, final Storage storage, final int chunkSize,
+                           final int expectedSize) {
+    if (chunkSize < HEADER || Integer.bitCount(chunkSize) != 1)
+      throw new IllegalArgumentException("Chunk size should be power of 2.");
+    this.factory = factory;
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    this.storage = storage;
+    this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+    this.chunkSize = chunkSize;
+    int slots = 16;
+    while (slots * 3L / 4 < expectedSize) slots <<= 1;
+    this.index = new AtomicLongArray(slots);
+    int stripes = 1;
+    while (stripes < Runtime.getRuntime().availableProcessors() * 2) stripes <<= 1;
+    this.readers = new AtomicLongArray(stripes * PADDING);
+  }
+
+  /**
+   * @param key
+   * @return
+   * @throws ExecutionException   if lazy new instance has error.
+   * @throws InterruptedException if current thread is interrupted during newing instance.
+   * @see Repository#getOrCreateIfNotExist(Object)
+   */
+  public final V getOrCreateIfNotExist(final K key) throws InterruptedException, ExecutionException {
+    final int hash = spread(key.hashCode());
+    final V stored = lookup(key, hash);
+    if (stored != null) return stored;
+
+    final FutureTask<V> newCreator = new FutureTask<V>(new Callable<V>() {
+      @Override
+      public V call() throws Exception {
+        final V stored = lookup(key, hash); // may be stored just before this creator was put.
+        if (stored != null) return stored;
+        final V value = factory.newInstance(key);
+        if (value == null) throw new NullPointerException("Null instance of " + key);
+        store(key, hash, value);
+        return value;
+      }
+    });
+    final FutureTask<V> oldCreator = creators.putIfAbsent(key, newCreator);
+    if (oldCreator != null) return oldCreator.get();
+
+    try {
+      newCreator.run();
+      return newCreator.get();
+    } finally {
+      creators.remove(key, newCreator);
+    }
+  }
+
+  /** @see Repository#uncheckedGetOrCreateIfNoExist(Object) */
+  public final V uncheckedGetOrCreateIfNoExist(final K key) {
+    try {
+      return getOrCreateIfNotExist(key);
+    } catch (final InterruptedException e) {
+      throw new RuntimeException(e);
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new RuntimeException(cause);
+    }
+  }
+
+  /** @return number of stored entries. */
+  public final int size() { return size; }
+
+  /** @return bytes of records appended. */
+  public final long usedBytes() {
+    lock.lock();
+    try {
+      final int count = chunks.length;
+      return count == 0 ? 0L : (long) (count - 1) * chunkSize + tail;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Release all chunks after lookups in flight finished, later calls would throw {@link IllegalStateException}.
+   */
+  public final void dispose() {
+    lock.lock();
+    try {
+      if (disposed) return;
+      disposed = true;
+      // a reader counted itself before checking disposed, so it either sees disposed or is waited here.
+      for (int i = 0; i < readers.length(); i += PADDING) while (readers.get(i) != 0L) Thread.yield();
+      for (final ByteBuffer chunk : chunks) DirectByteBufferCleaner.clean(chunk);
+      chunks = new ByteBuffer[0];
+      storage.close();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private V lookup(final K key, final int hash) {
+    final int stripe = ((int) Thread.currentThread().getId() & (readers.length() / PADDING - 1)) * PADDING;
+    readers.incrementAndGet(stripe);
+    try {
+      checkNotDisposed();
+      final AtomicLongArray index = this.index;
+      final int mask = index.length() - 1;
+      final long tag = tagOf(hash);
+      ByteBuffer expected = null; // serialized key, only if a record of the same tag is probed.
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        final long slot = index.get(i);
+        if (slot == 0L) return null;
+        if (slot >>> ADDRESS_BITS != tag) continue;
+        final long address = (slot & ADDRESS_MASK) - 1;
+        final ByteBuffer record = record(address);
+        if (record.getInt() != hash) continue;
+        if (expected == null) expected = serialize(keySerializer, key, SCRATCH.get());
+        if (!keyEquals(expected, record)) continue;
+        return valueSerializer.read(record);
+      }
+    } finally {
+      readers.decrementAndGet(stripe);
+    }
+  }
+
+  private void checkNotDisposed() {
+    if (disposed) throw new IllegalStateException("Repository has been disposed.");
+  }
+
+  /** @return a buffer positioned at the record. */
+  private ByteBuffer record(final long address) {
+    final ByteBuffer record = chunks[((int) (address >>> chunkShift))].duplicate();
+    record.position((int) (address & (chunkSize - 1)));
+    return record;
+  }
+
+  /** @return true if key equals, and record would be limited to its value. */
+  private static boolean keyEquals(final ByteBuffer expected, final ByteBuffer record) {
+    final int keyLength = record.getInt();
+    final int valueLength = record.getInt();
+    if (expected.remaining() != keyLength) return false;
+    for (int i = 0; i < keyLength; i++) {
+      if (expected.get(i) != record.get(record.position() + i)) return false;
+    }
+    record.position(record.position() + keyLength);
+    record.limit(record.position() + valueLength);
+    return true;
+  }
+
+  private void store(final K key, final int hash, final V value) {
+    final int keyLength = keySerializer.sizeOf(key);
+    final int valueLength = valueSerializer.sizeOf(value);
+    final long length = (long) HEADER + keyLength + valueLength;
+    if (length > chunkSize) throw new IllegalArgumentException("Record of " + key + " is larger than chunk.");
+
+    lock.lock();
+    try {
+      checkNotDisposed();
+      if (chunks.length == 0 || tail + length > chunkSize) appendChunk();
+      final long address = ((long) (chunks.length - 1) << chunkShift) + tail;
+      if (address + 1 > ADDRESS_MASK) throw new IllegalStateException("Out of addressable space.");
+
+      final ByteBuffer chunk = chunks[chunks.length - 1];
+      chunk.position(tail);
+      chunk.putInt(hash).putInt(keyLength).putInt(valueLength);
+      keySerializer.write(key, chunk);
+      valueSerializer.write(value, chunk);
+      if (chunk.position() != tail + length) throw new IllegalStateException("Serialized size mismatch.");
+      tail = chunk.position();
+
+      if (size + 1 > index.length() * 3L / 4) resize();
+      insert(index, hash, address);
+      size++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void appendChunk() {
+    final ByteBuffer[] appended = Arrays.copyOf(chunks, chunks.length + 1);
+    try {
+      appended[chunks.length] = storage.allocate(chunks.length, chunkSize);
+    } catch (IOException e) {
+      throw new IllegalStateException("Can not allocate chunk.", e);
+    }
+    chunks = appended;
+    tail = 0;
+  }
+
+  /** Publish a larger index, the old one is still valid for readers in flight. */
+  private void resize() {
+    final AtomicLongArray resized = new AtomicLongArray(index.length() << 1);
+    for (int i = 0; i < index.length(); i++) {
+      final long slot = index.get(i);
+      if (slot == 0L) continue;
+      final long address = (slot & ADDRESS_MASK) - 1;
+      insert(resized, record(address).getInt(), address);
+    }
+    index = resized;
+  }
+
+  private static void insert(final AtomicLongArray index, final int hash, final long address) {
+    final int mask = index.length() - 1;
+    int i = hash & mask;
+    while (index.get(i) != 0L) i = (i + 1) & mask;
+    index.set(i, (tagOf(hash) << ADDRESS_BITS) | (address + 1));
+  }
+
+  private static long tagOf(final int hash) { return (hash >>> 8) & 0xffffffL; }
+
+  private static int spread(final int h) {
+    final int x = (h ^ (h >>> 16)) * 0x9E3779B9;
+    return x ^ (x >>> 16);
+  }
+
+  private static <T> ByteBuffer serialize(final Serializer<T> serializer, final T value, final ByteBuffer scratch) {
+    final int size = serializer.sizeOf(value);
+    ByteBuffer buffer = scratch;
+    if (size > scratch.capacity()) SCRATCH.set(buffer = ByteBuffer.allocate(Integer.highestOneBit(size) << 1));
+    buffer.clear();
+    serializer.write(value, buffer);
+    buffer.flip();
+    return buffer;
+  }
+
+  private static final ThreadLocal<ByteBuffer> SCRATCH = new ThreadLocal<ByteBuffer>() {
+    @Override
+    protected ByteBuffer initialValue() { return ByteBuffer.allocate(256); }
+  };
+
+  private final Repository.Factory<K, V> factory;
+  private final Serializer<K> keySerializer;
+  private final Serializer<V> valueSerializer;
+  private final Storage storage;
+  private final int chunkShift;
+  private final int chunkSize;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicLongArray readers; // counts of lookups in flight, striped by thread
+  private final ConcurrentHashMap<K, FutureTask<V>> creators = new ConcurrentHashMap<K, FutureTask<V>>();
+
+  private volatile AtomicLongArray index;
+  private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+  private volatile int size;
+  private int tail;
+  private volatile boolean disposed; // written under lock
+
+  /** {@link Serializer} */
+  public static interface Serializer<T> {
+
+    /** @return bytes of serialized value. */
+    int sizeOf(T value);
+
+    /** Put exact {@link #sizeOf(Object)} bytes at position of buffer. */
+    void write(T value, ByteBuffer buffer);
+
+    /** @return value deserialized from position to limit of buffer. */
+    T read(ByteBuffer buffer);
+  }
+
+  /** {@link Storage} allocates chunks. */
+  public static abstract class Storage {
+
+    /** @return chunks of {@link ByteBuffer#allocateDirect(int)}. */
+    public static Storage direct() {
+      return new Storage() {
+        @Override
+        ByteBuffer allocate(final int index, final int size) { return ByteBuffer.allocateDirect(size); }
+
+        @Override
+        void close() {}
+      };
+    }
+
+    /** @return chunks mapped from file, which would be overwritten. */
+    public static Storage mapped(final File file) throws IOException {
+      final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      return new Storage() {
+        @Override
+        ByteBuffer allocate(final int index, final int size) throws IOException {
+          return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) index * size, size);
+        }
+
+        @Override
+        void close() {
+          try {
+            raf.close();
+          } catch (IOException e) { /* ignore */ }
+        }
+      };
+    }
+
+    abstract ByteBuffer allocate(int index, int size) throws IOException;
+
+    abstract void close();
+  }
+}
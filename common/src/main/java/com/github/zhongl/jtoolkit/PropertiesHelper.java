@@ -9,6 +9,8 @@ import java.util.Properties;
 
 /**
  * {@link PropertiesHelper}
+ * <p/>
+ * Each get looks up and converts the value again, use {@link Configuration} for reading on hot paths.
  *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  * @created 2010-11-7
@@ -62,6 +64,18 @@ public final class PropertiesHelper {
     return parseInt(properties.getProperty(key).trim());
   }
 
+  /** @see SizeConverter#parse(CharSequence) */
+  public long getSize(final String key) {
+    final String value = properties.getProperty(key);
+    if (value == null) throw new IllegalArgumentException(key + " is missing.");
+    return SizeConverter.parse(value);
+  }
+
+  public long getSize(final String key, final long defaultValue) {
+    if (!properties.containsKey(key)) return defaultValue;
+    return SizeConverter.parse(properties.getProperty(key));
+  }
+
   public String getString(final String key) {
     final String value = properties.getProperty(key);
     if (value == null || value.length() == 0)
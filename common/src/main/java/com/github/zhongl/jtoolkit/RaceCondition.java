@@ -2,12 +2,15 @@ package com.github.zhongl.jtoolkit;
 
 import static java.util.concurrent.Executors.newFixedThreadPool;
 
+import java.io.Closeable;
 import java.lang.reflect.Array;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * {@link RaceCondition}
+ * {@link RaceCondition} runs tasks in parallel once by {@link #run(boolean, Callable[])}, or stresses a
+ * {@link Scenario} for thousands of iterations by {@link #stress(int)}.
  *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  */
@@ -50,10 +53,254 @@ public final class RaceCondition {
         }
     }
 
+    /** @return a harness of daemon threads, which would be reused by runs until closed. */
+    public static Stress stress(int threads) { return new Stress(threads); }
+
     private static <T> List<T> map(List<Future<T>> futures) throws Exception {
         final List<T> results = new ArrayList<T>(futures.size());
         for (Future<T> future : futures) results.add(future.get());
         return results;
     }
 
+    /**
+     * {@link Scenario} of a stress iteration, like a JCStress test: actors race on a fresh state, then the arbiter
+     * tells the outcome.
+     */
+    public interface Scenario<S> {
+        /** Called before an iteration starts, out of timing. */
+        S newState();
+
+        /** Called by each thread of harness concurrently, with its index as actor. */
+        void act(int actor, S state) throws Exception;
+
+        /**
+         * Called after all actors of an iteration finished, by one of the threads.
+         *
+         * @return outcome to be counted, e.g. a string of observed values.
+         */
+        Object arbiter(S state) throws Exception;
+    }
+
+    /**
+     * {@link Stress} runs each iteration of a {@link Scenario} on all its threads at once.
+     * <p/>
+     * Threads spin until an iteration is published, instead of awaiting a barrier, so that they start as close as
+     * possible. The last actor finished would judge the outcome, prepare the state of next iteration and publish it,
+     * thus iterations never overlap.
+     */
+    public static final class Stress implements Closeable {
+        private final int threads;
+        private final ExecutorService executor;
+
+        private Stress(int threads) {
+            if (threads < 1) throw new IllegalArgumentException("Threads should be greater than 0.");
+            this.threads = threads;
+            final ThreadPoolExecutor executor = (ThreadPoolExecutor) newFixedThreadPool(threads,
+                    new DebugableThreadFactory("stress", true));
+            executor.prestartAllCoreThreads();
+            this.executor = executor;
+        }
+
+        /**
+         * Run iterations of scenario, errors thrown by actors or arbiter are counted in report.
+         *
+         * @throws InterruptedException  if interrupted, or closed.
+         * @throws IllegalStateException if {@link Scenario#newState()} failed, which aborts the run.
+         */
+        public synchronized <S> Report run(final Scenario<S> scenario, final int iterations)
+                throws InterruptedException {
+            if (iterations < 1) throw new IllegalArgumentException("Iterations should be greater than 0.");
+            final Round<S> round = new Round<S>(scenario, iterations, threads);
+            final List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+            round.publish(0);
+            for (int i = 0; i < threads; i++) {
+                final int actor = i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        round.act(actor);
+                        return null;
+                    }
+                }));
+            }
+            try {
+                for (Future<?> future : futures) future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Stress aborted.", e.getCause());
+            } finally {
+                for (Future<?> future : futures) future.cancel(true);
+            }
+            return round.report();
+        }
+
+        @Override
+        public void close() { executor.shutdownNow(); }
+    }
+
+    /** {@link Report} of a {@link Stress} run. */
+    public static final class Report {
+        private static final int MAX_ERRORS = 16;
+
+        private final long elapsed;
+        private final long[] sorted;
+        private final Map<Object, Long> outcomes;
+        private final List<Throwable> errors;
+        private final long errorCount;
+
+        private Report(long elapsed, long[] durations, Map<Object, Long> outcomes, List<Throwable> errors,
+                       long errorCount) {
+            this.elapsed = elapsed;
+            this.sorted = durations.clone();
+            Arrays.sort(this.sorted);
+            this.outcomes = Collections.unmodifiableMap(outcomes);
+            this.errors = Collections.unmodifiableList(errors);
+            this.errorCount = errorCount;
+        }
+
+        public int iterations() { return sorted.length; }
+
+        /** @return counts of outcomes, in order of first seen. */
+        public Map<Object, Long> outcomes() { return outcomes; }
+
+        public long count(Object outcome) {
+            final Long count = outcomes.get(outcome);
+            return count == null ? 0L : count;
+        }
+
+        /** @return number of errors thrown by actors and arbiter. */
+        public long errorCount() { return errorCount; }
+
+        /** @return first errors, no more than 16. */
+        public List<Throwable> errors() { return errors; }
+
+        /** @return iterations per second. */
+        public double throughput() { return sorted.length * 1e9 / Math.max(1L, elapsed); }
+
+        /** @return nanos from an iteration published to its last actor finished, e.g. 0.99 for p99. */
+        public long percentile(double p) {
+            if (p < 0d || p > 1d) throw new IllegalArgumentException("Percentile should be in [0, 1].");
+            return sorted[(int) Math.ceil(p * sorted.length) - (p == 0d ? 0 : 1)];
+        }
+
+        /** @return counts of iterations, by upper bound in nanos of power of 2. */
+        public SortedMap<Long, Long> histogram() {
+            final SortedMap<Long, Long> histogram = new TreeMap<Long, Long>();
+            for (long duration : sorted) {
+                final long bound = duration <= 1L ? 1L : Long.highestOneBit(duration - 1) << 1;
+                final Long count = histogram.get(bound);
+                histogram.put(bound, count == null ? 1L : count + 1);
+            }
+            return histogram;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(sorted.length).append(" iterations, ").append((long) throughput()).append(" ops/s, p50 ")
+              .append(percentile(0.5)).append("ns, p99 ").append(percentile(0.99)).append("ns, max ")
+              .append(percentile(1d)).append("ns, ").append(errorCount).append(" errors");
+            for (Map.Entry<Object, Long> entry : outcomes.entrySet()) {
+                sb.append("\n  ").append(entry.getValue()).append('\t').append(entry.getKey());
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * {@link Round} is the shared state of a run. Fields but <code>published</code> are written by the last actor
+     * of an iteration before publishing the next, and read by actors after, so they need not be volatile.
+     */
+    private static final class Round<S> {
+        private static final int SPINS = 128;
+        private static final int ABORTED = Integer.MAX_VALUE;
+
+        private final Scenario<S> scenario;
+        private final int threads;
+        private final long[] durations;
+        private final AtomicInteger finished = new AtomicInteger();
+        private final Map<Object, Long> outcomes = new LinkedHashMap<Object, Long>();
+        private final List<Throwable> errors = new ArrayList<Throwable>();
+        private final Object lock = new Object(); // of errors by actors
+
+        private volatile int published = -1;
+        private S state;
+        private long startedAt;
+        private long begin;
+        private long end;
+        private long errorCount;
+        private Throwable abortion; // written before published ABORTED
+
+        private Round(Scenario<S> scenario, int iterations, int threads) {
+            this.scenario = scenario;
+            this.threads = threads;
+            this.durations = new long[iterations];
+        }
+
+        void act(int actor) throws InterruptedException {
+            for (int i = 0; i < durations.length; i++) {
+                await(i);
+                final S current = state;
+                try {
+                    scenario.act(actor, current);
+                } catch (Throwable t) {
+                    error(t);
+                }
+                if (finished.incrementAndGet() < threads) continue;
+                final long now = System.nanoTime();
+                durations[i] = now - startedAt;
+                judge(current);
+                finished.set(0);
+                if (i + 1 < durations.length) publish(i + 1);
+                else end = now;
+            }
+        }
+
+        void publish(int iteration) {
+            try {
+                state = scenario.newState();
+            } catch (Throwable t) { // release actors waiting, or they would spin forever.
+                error(t);
+                abortion = t;
+                published = ABORTED;
+                return;
+            }
+            startedAt = System.nanoTime();
+            if (iteration == 0) begin = startedAt;
+            published = iteration;
+        }
+
+        Report report() {
+            synchronized (lock) {
+                return new Report(end - begin, durations, outcomes, new ArrayList<Throwable>(errors), errorCount);
+            }
+        }
+
+        private void await(int iteration) throws InterruptedException {
+            for (int spins = 0; published < iteration; spins++) {
+                if (spins < SPINS) continue;
+                if (Thread.interrupted()) throw new InterruptedException();
+                Thread.yield();
+            }
+            if (published == ABORTED) throw new IllegalStateException("Failed to create new state.", abortion);
+        }
+
+        private void judge(S current) {
+            final Object outcome;
+            try {
+                outcome = scenario.arbiter(current);
+            } catch (Throwable t) {
+                error(t);
+                return;
+            }
+            final Long count = outcomes.get(outcome);
+            outcomes.put(outcome, count == null ? 1L : count + 1);
+        }
+
+        private void error(Throwable t) {
+            synchronized (lock) {
+                errorCount++;
+                if (errors.size() < Report.MAX_ERRORS) errors.add(t);
+            }
+        }
+    }
 }
@@ -1,12 +1,22 @@
 package com.github.zhongl.jtoolkit;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.Stack;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * {@link RecurseTree }
+ * {@link RecurseTree } walks a tree of which children are given by {@link IteratorFactory}.
+ * <p/>
+ * {@link #traverse(Object, IteratorFactory, Order, int)} is lazy, children of a node would not be asked for until the
+ * traversal moves past it, so a cancelled or depth limited traversal never touches the rest of tree.
+ * {@link #runInParallel(Object, IteratorFactory, Callback, ForkJoinPool, Cancellation)} walks sibling subtrees in
+ * parallel.
  *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  * @created 2010-11-14
@@ -17,21 +27,53 @@ public final class RecurseTree {
     return empty.iterator();
   }
 
+  /** Callback in post-order, which means children before their parent. */
   public static final <T> void run(final T root, final IteratorFactory<T> factory, final Callback<T> callback) {
-    final Stack<Level<T>> stack = new Stack<Level<T>>();
-    stack.push(new Level<T>(root, factory.iterator(root)));
-    while (!stack.empty()) {
-      final Level<T> level = stack.pop();
-      if (level.children.hasNext()) {
-        stack.push(level);
-        final T child = level.children.next();
-        stack.push(new Level<T>(child, factory.iterator(child)));
-      } else {
-        callback.onCallback(level.parent);
-      }
+    for (final Traversal<T> traversal = traverse(root, factory, Order.POST); traversal.hasNext(); ) {
+      callback.onCallback(traversal.next());
     }
   }
 
+  /** Traverse all the tree. */
+  public static <T> Traversal<T> traverse(final T root, final IteratorFactory<T> factory, final Order order) {
+    return traverse(root, factory, order, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maxDepth nodes deeper than it would be skipped, and depth of root is 0.
+   * @return a traversal not thread safe.
+   */
+  public static <T> Traversal<T> traverse(final T root, final IteratorFactory<T> factory, final Order order,
+                                          final int maxDepth) {
+    if (maxDepth < 0) throw new IllegalArgumentException("Max depth should not be negative.");
+    switch (order) {
+      case PRE:
+        return new Expanding<T>(root, factory, maxDepth, true);
+      case BREADTH:
+        return new Expanding<T>(root, factory, maxDepth, false);
+      default:
+        return new PostOrder<T>(root, factory, maxDepth);
+    }
+  }
+
+  /** @see #runInParallel(Object, IteratorFactory, Callback, ForkJoinPool, Cancellation) */
+  public static <T> void runInParallel(final T root, final IteratorFactory<T> factory, final Callback<T> callback,
+                                       final ForkJoinPool pool) {
+    runInParallel(root, factory, callback, pool, new Cancellation());
+  }
+
+  /**
+   * Callback in post-order as {@link #run(Object, IteratorFactory, Callback)}, but subtrees of siblings are walked in
+   * parallel, so factory and callback would be called concurrently. Callback of a node happens after those of its
+   * children.
+   * <p/>
+   * It returns after all called back, or after cancelled and no more callback on the run.
+   */
+  public static <T> void runInParallel(final T root, final IteratorFactory<T> factory, final Callback<T> callback,
+                                       final ForkJoinPool pool, final Cancellation cancellation) {
+    pool.invoke(new Walk<T>(null, root, factory, callback, cancellation));
+  }
+
   private RecurseTree() {}
 
   public interface Callback<T> {
@@ -42,14 +84,221 @@ public final class RecurseTree {
     Iterator<T> iterator(T obj);
   }
 
+  public enum Order {
+    /** Parent before its children. */
+    PRE,
+    /** Children before their parent. */
+    POST,
+    /** Nodes of a depth before deeper ones. */
+    BREADTH
+  }
+
+  /** {@link Cancellation} stops a parallel run, it is thread safe. */
+  public static final class Cancellation {
+    private volatile boolean cancelled;
+
+    public void cancel() { cancelled = true; }
+
+    public boolean isCancelled() { return cancelled; }
+  }
+
+  /** {@link Traversal} is a lazy {@link Iterator} of nodes, which should not be null. */
+  public static abstract class Traversal<T> implements Iterator<T> {
+    private T next;
+    private int depth = -1;
+    private boolean cancelled;
+
+    /** Depth of node returned by {@link #advance()}. */
+    int advanced;
+
+    private Traversal() {}
+
+    @Override
+    public final boolean hasNext() {
+      if (next == null && !cancelled) next = advance();
+      return next != null;
+    }
+
+    @Override
+    public final T next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      final T current = next;
+      next = null;
+      depth = advanced;
+      return current;
+    }
+
+    @Override
+    public final void remove() { throw new UnsupportedOperationException(); }
+
+    /** @return depth of the node returned by last {@link #next()}, root is 0. */
+    public final int depth() { return depth; }
+
+    /** Stop at once, the rest of tree would not be visited. */
+    public final void cancel() {
+      cancelled = true;
+      next = null;
+      clear();
+    }
+
+    /** @return ordered spliterator, which splits in batches for parallel stream. */
+    public final Spliterator<T> spliterator() {
+      return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /** @return next node, or null if no more. */
+    abstract T advance();
+
+    abstract void clear();
+  }
+
+  /** {@link Expanding} expands children of a node after it returned, depth first if stacked, or breadth first. */
+  private static final class Expanding<T> extends Traversal<T> {
+    private final IteratorFactory<T> factory;
+    private final int maxDepth;
+    private final boolean stacked;
+    private final ArrayDeque<Level<T>> levels = new ArrayDeque<Level<T>>();
+
+    private T root;
+    private T expanding;
+
+    private Expanding(final T root, final IteratorFactory<T> factory, final int maxDepth, final boolean stacked) {
+      this.root = root;
+      this.factory = factory;
+      this.maxDepth = maxDepth;
+      this.stacked = stacked;
+    }
+
+    @Override
+    T advance() {
+      if (root != null) {
+        expanding = root;
+        root = null;
+        advanced = 0;
+        return expanding;
+      }
+      if (expanding != null && advanced < maxDepth) {
+        final Level<T> level = new Level<T>(null, factory.iterator(expanding), advanced + 1);
+        if (stacked) levels.push(level);
+        else levels.addLast(level);
+      }
+      expanding = null;
+      for (Level<T> level = levels.peekFirst(); level != null; level = levels.peekFirst()) {
+        if (level.children.hasNext()) {
+          advanced = level.depth;
+          return expanding = level.children.next();
+        }
+        levels.pollFirst();
+      }
+      return null;
+    }
+
+    @Override
+    void clear() {
+      root = null;
+      expanding = null;
+      levels.clear();
+    }
+  }
+
+  /** {@link PostOrder} returns a node after all its children. */
+  private static final class PostOrder<T> extends Traversal<T> {
+    private final IteratorFactory<T> factory;
+    private final int maxDepth;
+    private final ArrayDeque<Level<T>> levels = new ArrayDeque<Level<T>>();
+
+    private T root;
+
+    private PostOrder(final T root, final IteratorFactory<T> factory, final int maxDepth) {
+      this.root = root;
+      this.factory = factory;
+      this.maxDepth = maxDepth;
+    }
+
+    @Override
+    T advance() {
+      if (root != null) {
+        levels.push(level(root, 0));
+        root = null;
+      }
+      for (Level<T> level = levels.peek(); level != null; level = levels.peek()) {
+        if (level.children.hasNext()) {
+          levels.push(level(level.children.next(), level.depth + 1));
+        } else {
+          levels.pop();
+          advanced = level.depth;
+          return level.parent;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    void clear() {
+      root = null;
+      levels.clear();
+    }
+
+    private Level<T> level(final T node, final int depth) {
+      final Iterator<T> children = depth < maxDepth ? factory.iterator(node) : RecurseTree.<T>empty();
+      return new Level<T>(node, children, depth);
+    }
+  }
+
+  /**
+   * {@link Walk} calls back a node on completion of all its children. It forks all children but the first, which is
+   * walked in the same loop, so a deep tree would not overflow stack. Pending count is number of forked children, and
+   * completion of the first child completes its parent after those.
+   */
+  private static final class Walk<T> extends CountedCompleter<Void> {
+    private static final long serialVersionUID = 1L;
+
+    private final T node;
+    private final IteratorFactory<T> factory;
+    private final Callback<T> callback;
+    private final Cancellation cancellation;
+
+    private Walk(final Walk<T> parent, final T node, final IteratorFactory<T> factory, final Callback<T> callback,
+                 final Cancellation cancellation) {
+      super(parent);
+      this.node = node;
+      this.factory = factory;
+      this.callback = callback;
+      this.cancellation = cancellation;
+    }
+
+    @Override
+    public void compute() {
+      Walk<T> walk = this;
+      while (!cancellation.isCancelled()) {
+        final Iterator<T> children = factory.iterator(walk.node);
+        if (!children.hasNext()) break;
+        final T first = children.next();
+        while (children.hasNext()) {
+          walk.addToPendingCount(1);
+          new Walk<T>(walk, children.next(), factory, callback, cancellation).fork();
+        }
+        walk = new Walk<T>(walk, first, factory, callback, cancellation);
+      }
+      walk.tryComplete();
+    }
+
+    @Override
+    public void onCompletion(final CountedCompleter<?> caller) {
+      if (!cancellation.isCancelled()) callback.onCallback(node);
+    }
+  }
+
   private static class Level<T> {
 
-    public Level(final T parent, final Iterator<T> children) {
+    public Level(final T parent, final Iterator<T> children, final int depth) {
       this.parent = parent;
       this.children = children;
+      this.depth = depth;
     }
 
     private final T parent;
     private final Iterator<T> children;
+    private final int depth;
   }
 }
@@ -1,6 +1,9 @@
 package com.github.zhongl.jtoolkit;
 
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
  * {@link Repository}
@@ -10,7 +13,34 @@ import java.util.concurrent.*;
  */
 public abstract class Repository<K, V> {
   public Repository(final Factory<K, V> factory) {
+    this(factory, Failure.remember());
+  }
+
+  /** Creations of {@link #getAsync(Object)} and refreshes would be run by {@link #defaultExecutor()}. */
+  public Repository(final Factory<K, V> factory, final Failure failure) {
+    this(factory, failure, defaultExecutor());
+  }
+
+  /** @param executor runs creations of {@link #getAsync(Object)} and refreshes. */
+  public Repository(final Factory<K, V> factory, final Failure failure, final Executor executor) {
+    this(factory, failure, executor, 0L, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param factory
+   * @param failure
+   * @param executor     runs creations of {@link #getAsync(Object)} and refreshes.
+   * @param refreshAfter value created longer than it would be recreated in background on next get, and the stale
+   *                     one would be returned until the new one is ready, 0 means never refresh.
+   * @param unit
+   */
+  public Repository(final Factory<K, V> factory, final Failure failure, final Executor executor,
+                    final long refreshAfter, final TimeUnit unit) {
+    if (refreshAfter < 0L) throw new IllegalArgumentException("Refresh after should not be less than 0.");
     this.factory = factory;
+    this.failure = failure;
+    this.executor = executor;
+    this.refreshAfter = unit.toNanos(refreshAfter);
   }
 
   /**
@@ -22,8 +52,11 @@ public abstract class Repository<K, V> {
    *                              instance.
    */
   public final V getOrCreateIfNotExist(final K key) throws InterruptedException, ExecutionException {
-    final Future<V> future = map.get(key);
-    if (future != null) return future.get();
+    final FutureTask<V> future = map.get(key);
+    if (future != null) {
+      if (!failure.isExpired(future)) return refreshIfStale(key, future).get();
+      map.remove(key, future);
+    }
 
     final FutureTask<V> newCreator = newLazyCreator(key);
     final FutureTask<V> oldCreator = map.putIfAbsent(key, newCreator);
@@ -52,17 +85,172 @@ public abstract class Repository<K, V> {
     }
   }
 
-  private final FutureTask<V> newLazyCreator(final K key) {
-    return new FutureTask<V>(new Callable<V>() {
+  /**
+   * Get or create values of keys, those absent would be created by one call of {@link
+   * BulkFactory#newInstances(Collection)} if the factory is a {@link BulkFactory}, and those in creating would be
+   * waited instead of creating again.
+   *
+   * @param keys
+   * @return values in order of keys.
+   * @throws ExecutionException   if lazy new instance of any key has error.
+   * @throws InterruptedException if current thread is interrupted during newing instances.
+   */
+  public final Map<K, V> getOrCreateAll(final Collection<? extends K> keys)
+      throws InterruptedException, ExecutionException {
+    final Map<K, FutureTask<V>> futures = new LinkedHashMap<K, FutureTask<V>>();
+    final Set<K> absent = new LinkedHashSet<K>();
+    for (final K key : keys) {
+      if (futures.containsKey(key)) continue;
+      final FutureTask<V> future = map.get(key);
+      if (future == null || (failure.isExpired(future) && map.remove(key, future))) absent.add(key);
+      else futures.put(key, refreshIfStale(key, future));
+    }
+    if (!absent.isEmpty()) createAll(absent, futures);
+
+    final Map<K, V> values = new LinkedHashMap<K, V>(futures.size() * 4 / 3 + 1);
+    for (final K key : keys) if (!values.containsKey(key)) values.put(key, futures.get(key).get());
+    return values;
+  }
+
+  /**
+   * Get without blocking, the creation would be run by executor if it is absent.
+   *
+   * @param key
+   * @return a copy of the shared future, so completing or cancelling it would not affect other callers.
+   */
+  public final CompletableFuture<V> getAsync(final K key) {
+    FutureTask<V> future = map.get(key);
+    if (future != null && failure.isExpired(future)) {
+      map.remove(key, future);
+      future = null;
+    }
+
+    if (future == null) {
+      final FutureTask<V> newCreator = newLazyCreator(key);
+      future = map.putIfAbsent(key, newCreator);
+      if (future == null) {
+        future = newCreator;
+        try {
+          executor.execute(newCreator);
+        } catch (final RejectedExecutionException e) { // never run, so fail it for callers got it already.
+          map.remove(key, newCreator);
+          ((Creator<?, V>) newCreator).setException(e);
+        }
+      }
+    }
+
+    refreshIfStale(key, future);
+    if (future instanceof Creator) return ((Creator<?, V>) future).promise.thenApply(Function.<V>identity());
+    return supplyAsync(future);
+  }
+
+  private CompletableFuture<V> supplyAsync(final FutureTask<V> future) {
+    final CompletableFuture<V> promise = new CompletableFuture<V>();
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            promise.complete(future.get());
+          } catch (final ExecutionException e) {
+            promise.completeExceptionally(e.getCause());
+          } catch (final Throwable t) {
+            promise.completeExceptionally(t);
+          }
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      promise.completeExceptionally(e);
+    }
+    return promise;
+  }
+
+  /** Start a refresh in background if the value is stale, the stale one would be replaced after refreshed. */
+  private FutureTask<V> refreshIfStale(final K key, final FutureTask<V> future) {
+    if (refreshAfter == 0L || !(future instanceof Creator)) return future;
+    final Creator<?, V> stale = (Creator<?, V>) future;
+    if (!stale.isOlderThan(refreshAfter) || !stale.refreshing.compareAndSet(false, true)) return future;
+
+    final Creator<K, V> refreshing = newLazyCreator(key);
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          refreshing.run();
+          if (refreshing.failed) stale.refreshing.set(false); // keep stale one and retry on next get.
+          else map.replace(key, stale, refreshing);
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      stale.refreshing.set(false); // keep stale one and retry on next get.
+    }
+    return future;
+  }
+
+  private final Creator<K, V> newLazyCreator(final K key) {
+    return new Creator<K, V>(this, key, new Callable<V>() {
 
       @Override
       public V call() throws Exception {
-        return factory.newInstance(key);
+        for (int attempt = 1; ; attempt++) {
+          try {
+            return factory.newInstance(key);
+          } catch (final RuntimeException e) {
+            backoffOrThrow(attempt, e);
+          }
+        }
       }
     });
   }
 
+  /** Create absent keys, and put futures of them. */
+  private void createAll(final Set<K> absent, final Map<K, FutureTask<V>> futures) {
+    final Batch batch = factory instanceof BulkFactory ? new Batch((BulkFactory<K, V>) factory) : null;
+    final List<Creator<K, V>> owned = new ArrayList<Creator<K, V>>(absent.size());
+    boolean sealed = false;
+    try {
+      for (final K key : absent) {
+        final Creator<K, V> creator = batch == null ? newLazyCreator(key) : batch.creatorOf(key);
+        final FutureTask<V> existed = map.putIfAbsent(key, creator);
+        if (existed != null) { // created by others in the meantime.
+          futures.put(key, existed);
+          continue;
+        }
+        if (batch != null) batch.keys.add(key);
+        owned.add(creator);
+        futures.put(key, creator);
+      }
+      sealed = true;
+    } finally {
+      if (batch != null) batch.sealed.countDown();
+      if (!sealed) {
+        for (final Creator<K, V> creator : owned) { // never run, so cancel it for others got it already.
+          map.remove(creator.key, creator);
+          creator.cancel(false);
+        }
+      }
+    }
+    for (final Creator<K, V> creator : owned) creator.run();
+  }
+
+  private void backoffOrThrow(final int attempt, final RuntimeException e) throws InterruptedException {
+    if (attempt >= failure.attempts) throw e;
+    TimeUnit.NANOSECONDS.sleep(failure.backoff(attempt));
+  }
+
+  /**
+   * Creations may block and sleep between attempts, so they would not be run in {@link ForkJoinPool#commonPool()}
+   * shared with parallel streams and others.
+   *
+   * @return an executor shared by repositories, of which daemon threads are no more than twice of processors, and
+   *         would be released after idle for a minute.
+   */
+  public static Executor defaultExecutor() { return DefaultExecutor.INSTANCE; }
+
   private final Factory<K, V> factory;
+  private final Failure failure;
+  private final Executor executor;
+  private final long refreshAfter;
 
   protected final ConcurrentHashMap<K, FutureTask<V>> map = new ConcurrentHashMap<K, FutureTask<V>>();
 
@@ -70,4 +258,169 @@ public abstract class Repository<K, V> {
     V newInstance(K key);
   }
 
+  /** {@link DefaultExecutor} would not be created until it is used. */
+  private static final class DefaultExecutor {
+    private static final ThreadPoolExecutor INSTANCE;
+
+    static {
+      final int threads = Runtime.getRuntime().availableProcessors() * 2;
+      INSTANCE = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                                        new DebugableThreadFactory("repository", true));
+      INSTANCE.allowCoreThreadTimeOut(true);
+    }
+
+    private DefaultExecutor() {}
+  }
+
+  /** {@link BulkFactory} creates instances of many keys in one call, e.g. a multi-get of remote store. */
+  public static interface BulkFactory<K, V> extends Factory<K, V> {
+
+    /** @return instances of keys, any key missing would be treated as a failed creation. */
+    Map<K, V> newInstances(Collection<K> keys);
+  }
+
+  /**
+   * {@link Failure} decides how long a failed creation is remembered, and how many attempts a creation could make.
+   * <p/>
+   * All attempts of a creation are made in one future, so concurrent callers of the same key share them.
+   */
+  public static final class Failure {
+    private static final long FOREVER = -1L;
+    private static final Failure REMEMBER = new Failure(FOREVER, 1, 0L);
+
+    private final long ttl;
+    private final int attempts;
+    private final long backoff;
+
+    private Failure(final long ttl, final int attempts, final long backoff) {
+      this.ttl = ttl;
+      this.attempts = attempts;
+      this.backoff = backoff;
+    }
+
+    /** @return failure would be rethrown to all later callers of the key, it is the default. */
+    public static Failure remember() { return REMEMBER; }
+
+    /** @return failed creation would be removed once it is done, so the next caller will create again. */
+    public static Failure forget() { return new Failure(0L, 1, 0L); }
+
+    /** @return failure would be rethrown to callers of the key in duration, which is known as negative caching. */
+    public static Failure rememberFor(final long duration, final TimeUnit unit) {
+      final long ttl = unit.toNanos(duration);
+      if (ttl <= 0L) throw new IllegalArgumentException("Duration should be greater than 0.");
+      return new Failure(ttl, 1, 0L);
+    }
+
+    /**
+     * @param attempts max times to call {@link Factory#newInstance(Object)}, including the first.
+     * @param backoff  delay before the second attempt, and it is doubled before each later one.
+     * @param unit
+     *
+     * @return a copy retries {@link RuntimeException} of creation.
+     */
+    public Failure retry(final int attempts, final long backoff, final TimeUnit unit) {
+      if (attempts < 1) throw new IllegalArgumentException("Attempts should be greater than 0.");
+      if (backoff < 0L) throw new IllegalArgumentException("Backoff should not be less than 0.");
+      return new Failure(ttl, attempts, unit.toNanos(backoff));
+    }
+
+    private long backoff(final int attempt) { return backoff << Math.min(attempt - 1, 30); }
+
+    private boolean isExpired(final FutureTask<?> future) {
+      if (ttl == FOREVER || !(future instanceof Creator)) return false;
+      final Creator<?, ?> creator = (Creator<?, ?>) future;
+      return creator.failed && System.nanoTime() - creator.doneAt >= ttl;
+    }
+  }
+
+  /**
+   * {@link Batch} creates instances of keys put by it in one call of {@link BulkFactory}, the call would not start until
+   * all keys have been put.
+   */
+  private final class Batch implements Callable<Map<K, V>> {
+    private final BulkFactory<K, V> bulkFactory;
+    private final List<K> keys = new ArrayList<K>();
+    private final CountDownLatch sealed = new CountDownLatch(1);
+    private final FutureTask<Map<K, V>> task = new FutureTask<Map<K, V>>(this);
+
+    private Batch(final BulkFactory<K, V> bulkFactory) {this.bulkFactory = bulkFactory;}
+
+    @Override
+    public Map<K, V> call() throws Exception {
+      sealed.await();
+      for (int attempt = 1; ; attempt++) {
+        try {
+          return bulkFactory.newInstances(Collections.unmodifiableList(keys));
+        } catch (final RuntimeException e) {
+          backoffOrThrow(attempt, e);
+        }
+      }
+    }
+
+    private Creator<K, V> creatorOf(final K key) {
+      return new Creator<K, V>(Repository.this, key, new Callable<V>() {
+        @Override
+        public V call() throws Exception {
+          task.run(); // no-op if it has been run by others.
+          final Map<K, V> values;
+          try {
+            values = task.get();
+          } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw (Error) cause;
+          }
+          if (!values.containsKey(key)) throw new IllegalStateException("Missing instance of " + key);
+          return values.get(key);
+        }
+      });
+    }
+  }
+
+  /** {@link Creator} remembers when it was done, and completes its promise for async callers. */
+  private static final class Creator<K, V> extends FutureTask<V> {
+    private final Repository<K, V> repository;
+    private final K key;
+    private final CompletableFuture<V> promise = new CompletableFuture<V>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile long doneAt;
+    private volatile boolean failed;
+
+    private Creator(final Repository<K, V> repository, final K key, final Callable<V> callable) {
+      super(callable);
+      this.repository = repository;
+      this.key = key;
+    }
+
+    @Override
+    protected void set(final V v) {
+      doneAt = System.nanoTime();
+      super.set(v);
+    }
+
+    @Override
+    protected void setException(final Throwable t) {
+      doneAt = System.nanoTime();
+      failed = true;
+      super.setException(t);
+    }
+
+    @Override
+    protected void done() {
+      if (failed && repository.failure.ttl == 0L) repository.map.remove(key, this);
+      try {
+        promise.complete(get());
+      } catch (final ExecutionException e) {
+        promise.completeExceptionally(e.getCause());
+      } catch (final CancellationException e) {
+        promise.cancel(false);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt(); // never happen, since it is done.
+      }
+    }
+
+    private boolean isOlderThan(final long nanos) { return isDone() && !failed && System.nanoTime() - doneAt >= nanos; }
+  }
+
 }
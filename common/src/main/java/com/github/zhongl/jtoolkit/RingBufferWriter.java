@@ -0,0 +1,233 @@
+package com.github.zhongl.jtoolkit;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link RingBufferWriter} is a {@link Writer} into a fixed size buffer like {@link FixSizeBufferWriter}, but it can be
+ * appended by many threads without lock, and it keeps the last bytes instead of the first.
+ * <p/>
+ * Chars are encoded to UTF-8 and put in a direct buffer. A writer claims its range by adding to the claimed position,
+ * copies bytes, then adds to the committed count, so it never waits for others. Too long chars would only keep their
+ * tail bytes.
+ * <p/>
+ * Readers wait for a moment all claimed bytes are committed, or give up waiting after a while under endless writing.
+ * So draining and {@link #toString()} are best-effort snapshots, bytes in flight, or overwritten by writers faster
+ * than the channel, may be seen. The capacity should be far larger than bytes in flight.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class RingBufferWriter extends Writer {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int MAX_WAITS = 1000;
+
+  /** @param capacity in bytes, should be power of 2. */
+  public RingBufferWriter(final int capacity) {
+    if (capacity < 1 || Integer.bitCount(capacity) != 1)
+      throw new IllegalArgumentException("Capacity should be power of 2.");
+    buffer = ByteBuffer.allocateDirect(capacity);
+    mask = capacity - 1;
+  }
+
+  @Override
+  public void close() throws IOException {
+  }
+
+  @Override
+  public void flush() throws IOException {
+  }
+
+  @Override
+  public void write(final int c) throws IOException {
+    final Scratch scratch = scratch();
+    append(scratch, scratch.encode((char) c));
+  }
+
+  @Override
+  public void write(final char[] cbuf, final int off, final int len) throws IOException {
+    final Scratch scratch = scratch();
+    append(scratch, scratch.encode(cbuf, off, len));
+  }
+
+  @Override
+  public void write(final String str, final int off, final int len) throws IOException {
+    final Scratch scratch = scratch();
+    append(scratch, scratch.encode(str, off, len));
+  }
+
+  /** @return total bytes committed since created. */
+  public long written() { return committed.get(); }
+
+  /**
+   * Write bytes committed since last draining to channel, directly from the ring.
+   *
+   * @return number of bytes drained.
+   */
+  public synchronized long drainTo(final WritableByteChannel channel) throws IOException {
+    final long end = quiescent();
+    final long begin = begin(drained, end);
+    long drained = 0L;
+    for (final ByteBuffer segment : segments(begin, end)) {
+      while (segment.hasRemaining()) drained += channel.write(segment);
+    }
+    this.drained = end;
+    return drained;
+  }
+
+  /** @return decoded the last bytes. */
+  @Override
+  public String toString() {
+    final long end = quiescent();
+    final long begin = begin(0L, end);
+    final byte[] bytes = new byte[((int) (end - begin))];
+    int offset = 0;
+    for (final ByteBuffer segment : segments(begin, end)) {
+      final int length = segment.remaining();
+      segment.get(bytes, offset, length);
+      offset += length;
+    }
+    return new String(bytes, UTF_8);
+  }
+
+  private void append(final Scratch scratch, final int length) {
+    final int capacity = mask + 1;
+    final int skipped = Math.max(0, length - capacity);
+    final long start = claimed.getAndAdd(length);
+
+    final ByteBuffer ring = scratch.ring;
+    int from = skipped;
+    long position = start + skipped;
+    while (from < length) {
+      final int index = (int) (position & mask);
+      final int count = Math.min(length - from, capacity - index);
+      ring.limit(index + count).position(index);
+      ring.put(scratch.bytes, from, count);
+      from += count;
+      position += count;
+    }
+
+    committed.getAndAdd(length);
+  }
+
+  /** @return claimed position, after all bytes before it are committed or waited too long. */
+  private long quiescent() {
+    for (int i = 0; i < MAX_WAITS; i++) {
+      final long committed = this.committed.get();
+      final long claimed = this.claimed.get();
+      if (committed == claimed) return claimed; // nothing was in flight when committed was read
+      Thread.yield();
+    }
+    return claimed.get();
+  }
+
+  /** @return begin of available bytes, which does not start in the middle of a char. */
+  private long begin(final long from, final long end) {
+    long begin = Math.max(from, end - mask - 1);
+    if (begin == from) return begin;
+    while (begin < end && (buffer.get((int) (begin & mask)) & 0xC0) == 0x80) begin++;
+    return begin;
+  }
+
+  private ByteBuffer[] segments(final long begin, final long end) {
+    final int head = (int) (begin & mask);
+    final int length = (int) (end - begin);
+    final ByteBuffer first = buffer.duplicate();
+    if (head + length <= mask + 1) {
+      first.limit(head + length).position(head);
+      return new ByteBuffer[]{first};
+    }
+    first.position(head);
+    final ByteBuffer second = buffer.duplicate();
+    second.limit(head + length - mask - 1);
+    return new ByteBuffer[]{first, second};
+  }
+
+  private Scratch scratch() {
+    Scratch scratch = scratches.get();
+    if (scratch == null) scratches.set(scratch = new Scratch(buffer.duplicate()));
+    return scratch;
+  }
+
+  private final ByteBuffer buffer;
+  private final int mask;
+  private final AtomicLong claimed = new AtomicLong();
+  private final AtomicLong committed = new AtomicLong();
+  private final ThreadLocal<Scratch> scratches = new ThreadLocal<Scratch>();
+
+  private long drained;
+
+  /** {@link Scratch} is encoding bytes of a thread, with its view of ring. */
+  private static final class Scratch {
+    private final ByteBuffer ring;
+    private byte[] bytes = new byte[256];
+    private char[] chars = new char[256];
+    private int length;
+
+    private Scratch(final ByteBuffer ring) {this.ring = ring;}
+
+    int encode(final char[] chars, final int off, final int len) {
+      ensure(len);
+      final byte[] bytes = this.bytes;
+      final int end = off + len;
+      int i = off;
+      while (i < end && chars[i] < 0x80) { // ascii fast path
+        bytes[i - off] = (byte) chars[i];
+        i++;
+      }
+      length = i - off;
+      for (; i < end; i++) {
+        final char c = chars[i];
+        if (c < 0x80) bytes[length++] = (byte) c;
+        else if (put(c, i + 1 < end ? chars[i + 1] : 0)) i++;
+      }
+      return length;
+    }
+
+    int encode(final char c) {
+      ensure(1);
+      if (c < 0x80) bytes[length++] = (byte) c;
+      else put(c, (char) 0); // a single surrogate is malformed
+      return length;
+    }
+
+    int encode(final String str, final int off, final int len) {
+      if (chars.length < len) chars = new char[Integer.highestOneBit(len) << 1];
+      str.getChars(off, off + len, chars, 0); // copying is cheaper than charAt one by one
+      return encode(chars, 0, len);
+    }
+
+    private void ensure(final int chars) {
+      if (bytes.length < chars * 3) bytes = new byte[Integer.highestOneBit(chars * 3) << 1];
+      length = 0;
+    }
+
+    /** @return true if next char is consumed as low surrogate. */
+    private boolean put(final char c, final char next) {
+      if (c < 0x800) {
+        bytes[length++] = (byte) (0xC0 | (c >> 6));
+        bytes[length++] = (byte) (0x80 | (c & 0x3F));
+        return false;
+      }
+      if (Character.isHighSurrogate(c) && Character.isLowSurrogate(next)) {
+        final int code = Character.toCodePoint(c, next);
+        bytes[length++] = (byte) (0xF0 | (code >> 18));
+        bytes[length++] = (byte) (0x80 | ((code >> 12) & 0x3F));
+        bytes[length++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+        bytes[length++] = (byte) (0x80 | (code & 0x3F));
+        return true;
+      }
+      if (Character.isSurrogate(c)) {
+        bytes[length++] = '?';
+        return false;
+      }
+      bytes[length++] = (byte) (0xE0 | (c >> 12));
+      bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      bytes[length++] = (byte) (0x80 | (c & 0x3F));
+      return false;
+    }
+  }
+}
@@ -1,36 +1,95 @@
 package com.github.zhongl.jtoolkit;
 
 /**
- * {@link SizeConverter}
+ * {@link SizeConverter} converts size like <code>512</code>, <code>4K</code>, <code>64MiB</code> or <code>1GB</code>
+ * to bytes.
+ * <p/>
+ * Units are B, K, M, G and T in any case. A bare unit letter or one followed by <code>iB</code> is binary, like
+ * <code>4K</code> and <code>4KiB</code> are 4096; one followed by <code>B</code> is decimal, like <code>4KB</code> is
+ * 4000. Blanks around number and unit are ignored, fraction and negative are illegal.
  *
  * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
  * @created 2010-12-23
  */
 public final class SizeConverter implements PropertiesHelper.Converter<Integer> {
 
+  /** Converter of sizes up to {@link Long#MAX_VALUE}. */
+  public static final PropertiesHelper.Converter<Long> LONG = new PropertiesHelper.Converter<Long>() {
+    @Override
+    public Long convert(final String value) { return parse(value); }
+  };
+
+  /** @throws IllegalArgumentException if it is greater than {@link Integer#MAX_VALUE}. */
   @Override
   public Integer convert(final String value) {
-    final int number = Integer.parseInt(value.substring(0, value.length() - 1));
-    final int bytes =
-        Unit.valueOf(value.substring(value.length() - 1).toUpperCase()).toBytes(number);
-    if (bytes < 0) throw new IllegalArgumentException(value + " is out of bound.");
-    return bytes;
+    final long bytes = parse(value);
+    if (bytes > Integer.MAX_VALUE) throw new IllegalArgumentException(value + " is out of bound.");
+    return (int) bytes;
   }
 
-  enum Unit {
-    M {
-      @Override
-      int toBytes(final int value) {
-        return (1 << 20) * value;
-      }
-    },
-    K {
-      @Override
-      int toBytes(final int value) {
-        return (1 << 10) * value;
+  /**
+   * Parse char by char, without allocation unless it is illegal.
+   *
+   * @return bytes.
+   * @throws IllegalArgumentException if it is not a size, or is greater than {@link Long#MAX_VALUE}.
+   */
+  public static long parse(final CharSequence value) {
+    final int length = value.length();
+    int i = skipBlanks(value, 0);
+
+    final int digits = i;
+    long number = 0L;
+    for (; i < length; i++) {
+      final int digit = value.charAt(i) - '0';
+      if (digit < 0 || digit > 9) break;
+      if (number > (Long.MAX_VALUE - digit) / 10) throw new IllegalArgumentException(value + " is out of bound.");
+      number = number * 10 + digit;
+    }
+    if (i == digits) throw new IllegalArgumentException(value + " is not a size.");
+    i = skipBlanks(value, i);
+    if (i == length) return number;
+
+    final int exponent = exponentOf(value.charAt(i++));
+    if (exponent < 0) throw new IllegalArgumentException(value + " is not a size.");
+    boolean binary = true;
+    if (exponent > 0 && i < length) {
+      if (isB(value.charAt(i))) {
+        binary = false;
+        i++;
+      } else if (i + 1 < length && (value.charAt(i) | 0x20) == 'i' && isB(value.charAt(i + 1))) {
+        i += 2;
       }
-    };
+    }
+    if (skipBlanks(value, i) != length) throw new IllegalArgumentException(value + " is not a size.");
+
+    final long multiplier = binary ? 1L << (10 * exponent) : DECIMALS[exponent];
+    if (number > Long.MAX_VALUE / multiplier) throw new IllegalArgumentException(value + " is out of bound.");
+    return number * multiplier;
+  }
 
-    abstract int toBytes(int value);
+  private static int exponentOf(final char unit) {
+    switch (unit | 0x20) { // lower case
+      case 'b':
+        return 0;
+      case 'k':
+        return 1;
+      case 'm':
+        return 2;
+      case 'g':
+        return 3;
+      case 't':
+        return 4;
+      default:
+        return -1;
+    }
   }
+
+  private static boolean isB(final char c) { return (c | 0x20) == 'b'; }
+
+  private static int skipBlanks(final CharSequence value, int i) {
+    while (i < value.length() && Character.isWhitespace(value.charAt(i))) i++;
+    return i;
+  }
+
+  private static final long[] DECIMALS = {1L, 1000L, 1000L * 1000, 1000L * 1000 * 1000, 1000L * 1000 * 1000 * 1000};
 }
@@ -1,30 +1,101 @@
 package com.github.zhongl.jtoolkit;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * {@link SystemClock} is a optimized substitute of {@link System.currentTimeMillis()} for avoiding context switch overload.
  * <p/>
- * Every instance would start a thread to update the time, so it's supposed to be singleton in application context.
+ * Every instance would start a thread to update the time, so it's supposed to be singleton in application context, or
+ * use {@link #shared(long)} instead, which shares one for each precision in process until the last caller stops it.
+ * <p/>
+ * Time of it never goes backwards, even if wall clock was set back, e.g. by NTP, it would stay until wall clock catches
+ * up.
  *
  * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl<a>
  */
 public class SystemClock {
 
+    private static final ConcurrentHashMap<Long, SystemClock> SHARED = new ConcurrentHashMap<Long, SystemClock>();
+
     private final long precision;
-    private final AtomicLong now;
+    private final boolean shared;
+    /** Number of callers holding the shared clock, it would be -1 once released by the last. */
+    private final AtomicInteger references = new AtomicInteger();
+    private final PaddedLong now;
+    private final PaddedLong nanoTime;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Anchor anchor;
 
     public SystemClock(long precision) {
+        this(precision, false);
+    }
+
+    private SystemClock(long precision, boolean shared) {
         this.precision = precision;
-        now = new AtomicLong(System.currentTimeMillis());
-        scheduleClockUpdating();
+        this.shared = shared;
+        now = new PaddedLong(System.currentTimeMillis());
+        nanoTime = new PaddedLong(System.nanoTime());
+        anchor = new Anchor(now.get() * 1000000L, nanoTime.get());
+        scheduler = scheduleClockUpdating();
     }
 
-    private void scheduleClockUpdating() {
+    /**
+     * Each call should be paired with a {@link #stop()} if the caller would not use it any more.
+     *
+     * @param precision in milliseconds.
+     * @return the clock shared in process for the precision, it would be created at first, or after stopped by the last
+     *         caller.
+     */
+    public static SystemClock shared(long precision) {
+        while (true) {
+            SystemClock clock = SHARED.get(precision);
+            if (clock == null) {
+                clock = SHARED.computeIfAbsent(precision, new Function<Long, SystemClock>() {
+                    @Override
+                    public SystemClock apply(Long precision) {
+                        return new SystemClock(precision, true);
+                    }
+                });
+            }
+            if (clock.retain()) return clock;
+            SHARED.remove(precision, clock); // released by the last caller just now
+        }
+    }
+
+    /**
+     * Stop the updating thread, then time of this clock would be frozen. A clock got by {@link #shared(long)} would be
+     * stopped only if it is the last caller, others could still use it.
+     */
+    public void stop() {
+        if (shared && !release()) return;
+        scheduler.shutdownNow();
+    }
+
+    private boolean retain() {
+        while (true) {
+            int count = references.get();
+            if (count < 0) return false;
+            if (references.compareAndSet(count, count + 1)) return true;
+        }
+    }
+
+    /** @return true if it is released by the last caller. */
+    private boolean release() {
+        while (true) {
+            int count = references.get();
+            if (count <= 0) return false;
+            if (count > 1 && references.compareAndSet(count, count - 1)) return false;
+            if (count == 1 && references.compareAndSet(1, -1)) {
+                SHARED.remove(precision, this);
+                return true;
+            }
+        }
+    }
+
+    private ScheduledExecutorService scheduleClockUpdating() {
         ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
             @Override
             public Thread newThread(Runnable runnable) {
@@ -36,16 +107,87 @@ public class SystemClock {
         scheduler.scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
-                now.set(System.currentTimeMillis());
+                update();
             }
         }, precision, precision, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    /** Only called by the updating thread, so no need to compare and set. */
+    private void update() {
+        final long millis = System.currentTimeMillis();
+        final long nanos = System.nanoTime();
+        if (millis > now.get()) now.set(millis);
+        nanoTime.set(nanos);
+        // new anchor should not be behind the old one from now on, and it is in nanoseconds to keep the remainder of
+        // microseconds, otherwise nowMicros() might be 1 less than read from the old one.
+        anchor = new Anchor(Math.max(millis * 1000000L, anchor.wallNanos(nanos)), nanos);
     }
 
+    /** @return cached milliseconds of wall clock. */
     public long now() {
         return now.get();
     }
 
+    /** @return cached {@link System#nanoTime()}, which is monotonic and only for measuring elapsed time. */
+    public long nanoTime() {
+        return nanoTime.get();
+    }
+
+    /**
+     * @return microseconds of wall clock, which is the anchored wall clock plus the elapsed {@link System#nanoTime()}
+     *         since anchored, the anchor is moved by the updating thread but never backwards.
+     */
+    public long nowMicros() {
+        return anchor.wallNanos(System.nanoTime()) / 1000L;
+    }
+
     public long precision() {
         return precision;
     }
+
+    /**
+     * {@link PaddedLong} is a volatile long padded by 56 bytes on both sides, so it would not share cache line with others
+     * and readers on many cores would not be disturbed by writes of neighbours.
+     * <p/>
+     * Paddings are declared in super classes, since JVM would not reorder fields across class hierarchy.
+     */
+    private static final class PaddedLong extends PaddedValue {
+        protected long p9, p10, p11, p12, p13, p14, p15;
+
+        private PaddedLong(long value) {
+            this.value = value;
+        }
+
+        long get() {
+            return value;
+        }
+
+        void set(long value) {
+            this.value = value;
+        }
+    }
+
+    private static class PaddedValue extends LeftPadding {
+        protected volatile long value;
+    }
+
+    private static class LeftPadding {
+        protected long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    /** {@link Anchor} pairs wall clock in nanoseconds with {@link System#nanoTime()} at the same moment. */
+    private static final class Anchor {
+        private final long wallNanos;
+        private final long nanos;
+
+        private Anchor(long wallNanos, long nanos) {
+            this.wallNanos = wallNanos;
+            this.nanos = nanos;
+        }
+
+        long wallNanos(long nanoTime) {
+            return wallNanos + (nanoTime - nanos);
+        }
+    }
 }
@@ -0,0 +1,127 @@
+package com.github.zhongl.jtoolkit;
+
+import org.slf4j.MDC;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * {@link TaskContext} carries name, trace id and MDC entries of a task, from where it is submitted to the thread
+ * running it by {@link ContextualRunnable} or {@link ContextualCallable}.
+ * <p/>
+ * Context of the running task is kept in a thread local slot, instead of renaming the thread as
+ * {@link NamedThreadRunnable} does, so entering and leaving a task costs no allocation unless the context has MDC
+ * entries. A context is immutable, <code>with</code> methods return a new one.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class TaskContext {
+  private static final String[] NONE = new String[0];
+
+  private static final ThreadLocal<Slot> SLOT = new ThreadLocal<Slot>() {
+    @Override
+    protected Slot initialValue() { return new Slot(); }
+  };
+
+  public static TaskContext named(final String name) {
+    return new TaskContext(name, null, NONE, System.nanoTime());
+  }
+
+  /** @return a context named, with trace id of the current one and entries of current MDC. */
+  public static TaskContext capture(final String name) {
+    final TaskContext current = current();
+    final String traceId = current == null ? null : current.traceId;
+    @SuppressWarnings("unchecked")
+    final Map<String, String> mdc = MDC.getCopyOfContextMap();
+    if (mdc == null || mdc.isEmpty()) return new TaskContext(name, traceId, NONE, System.nanoTime());
+    final String[] entries = new String[mdc.size() * 2];
+    int i = 0;
+    for (final Map.Entry<String, String> entry : mdc.entrySet()) {
+      entries[i++] = entry.getKey();
+      entries[i++] = entry.getValue();
+    }
+    return new TaskContext(name, traceId, entries, System.nanoTime());
+  }
+
+  /** @return context of the task running in current thread, or null if there is none. */
+  public static TaskContext current() { return SLOT.get().context; }
+
+  /** @return {@link System#nanoTime()} when the task running in current thread started, or 0 if there is none. */
+  public static long startedAt() { return SLOT.get().startedAt; }
+
+  public TaskContext withTraceId(final String traceId) {
+    return new TaskContext(name, traceId, mdc, createdAt);
+  }
+
+  /**
+   * @param key would be put into MDC while the task running, and restored after, its value would be replaced if the key
+   *            exists.
+   */
+  public TaskContext withMdc(final String key, final String value) {
+    for (int i = 0; i < mdc.length; i += 2) {
+      if (!mdc[i].equals(key)) continue;
+      final String[] entries = mdc.clone();
+      entries[i + 1] = value;
+      return new TaskContext(name, traceId, entries, createdAt);
+    }
+    final String[] entries = Arrays.copyOf(mdc, mdc.length + 2);
+    entries[mdc.length] = key;
+    entries[mdc.length + 1] = value;
+    return new TaskContext(name, traceId, entries, createdAt);
+  }
+
+  public String name() { return name; }
+
+  /** @return trace id or null. */
+  public String traceId() { return traceId; }
+
+  /** @return {@link System#nanoTime()} when it was created, for measuring queueing of task. */
+  public long createdAt() { return createdAt; }
+
+  @Override
+  public String toString() { return name + (traceId == null ? "" : "[" + traceId + ']'); }
+
+  /** @return previous values of MDC entries to restore, or null if no entry. */
+  String[] enter(final Slot slot) {
+    slot.context = this;
+    slot.startedAt = System.nanoTime();
+    if (mdc.length == 0) return null;
+    final String[] previous = new String[mdc.length / 2];
+    for (int i = 0; i < mdc.length; i += 2) {
+      previous[i / 2] = MDC.get(mdc[i]);
+      MDC.put(mdc[i], mdc[i + 1]);
+    }
+    return previous;
+  }
+
+  void exit(final Slot slot, final TaskContext previous, final long previousStartedAt, final String[] previousMdc) {
+    slot.context = previous;
+    slot.startedAt = previousStartedAt;
+    if (previousMdc == null) return;
+    for (int i = 0; i < mdc.length; i += 2) {
+      final String value = previousMdc[i / 2];
+      if (value == null) MDC.remove(mdc[i]);
+      else MDC.put(mdc[i], value);
+    }
+  }
+
+  static Slot slot() { return SLOT.get(); }
+
+  private TaskContext(final String name, final String traceId, final String[] mdc, final long createdAt) {
+    this.name = name;
+    this.traceId = traceId;
+    this.mdc = mdc;
+    this.createdAt = createdAt;
+  }
+
+  private final String name;
+  private final String traceId;
+  private final String[] mdc; // key and value in turn
+  private final long createdAt;
+
+  /** {@link Slot} of a thread, which is mutable and never leaves the thread. */
+  static final class Slot {
+    TaskContext context;
+    long startedAt;
+  }
+}
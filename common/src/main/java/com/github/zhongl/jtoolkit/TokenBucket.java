@@ -0,0 +1,64 @@
+package com.github.zhongl.jtoolkit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link TokenBucket} is a lock-free token bucket, tokens are refilled at a fixed rate up to the burst capacity.
+ * <p/>
+ * It tracks the theoretical arrival time of the next token instead of a token counter, so no refilling thread is
+ * needed.
+ *
+ * @author <a href=mailto:zhong.lunfu@gmail.com>zhongl</a>
+ */
+public final class TokenBucket {
+
+  private final long interval;
+  private final long capacity;
+  private final AtomicLong arrival;
+  private final AtomicLong denied = new AtomicLong();
+
+  /**
+   * @param permits number of tokens refilled per period.
+   * @param period
+   * @param unit
+   * @param burst   max tokens can be acquired at once after idle.
+   *
+   * @throws IllegalArgumentException
+   */
+  public TokenBucket(final int permits, final long period, final TimeUnit unit, final int burst) {
+    if (permits <= 0) throw new IllegalArgumentException("Permits should be greater than 0.");
+    if (burst <= 0) throw new IllegalArgumentException("Burst should be greater than 0.");
+    interval = unit.toNanos(period) / permits;
+    if (interval <= 0) throw new IllegalArgumentException("Rate is too high.");
+    capacity = interval * burst;
+    arrival = new AtomicLong(System.nanoTime());
+  }
+
+  /** @return false means no token left, and it would be counted as denied. */
+  public boolean tryAcquire() {
+    if (waitNanos() == 0L) return true;
+    denied.incrementAndGet();
+    return false;
+  }
+
+  /** Wait until a token is available. */
+  public void acquire() throws InterruptedException {
+    for (long wait = waitNanos(); wait > 0L; wait = waitNanos()) TimeUnit.NANOSECONDS.sleep(wait);
+  }
+
+  /** @return count of denied {@link #tryAcquire()}. */
+  public long denied() { return denied.get(); }
+
+  /** @return 0 if a token has been taken, else nanos to wait for next token. */
+  private long waitNanos() {
+    for (; ; ) {
+      final long now = System.nanoTime();
+      final long current = arrival.get();
+      final long next = Math.max(current, now) + interval;
+      final long wait = next - now - capacity;
+      if (wait > 0L) return wait;
+      if (arrival.compareAndSet(current, next)) return 0L;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.github.zhongl.jtoolkit;
+
+import com.github.zhongl.jtoolkit.AffinityThreadFactory.Policy;
+import com.github.zhongl.jtoolkit.AffinityThreadFactory.Topology;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class AffinityThreadFactoryTest {
+
+  /** 2 sockets of 2 cores with 2 hyper threads, cpu 0,1,4,5 on socket 0 and 2,3,6,7 on socket 1. */
+  private final File root = new File("target/sysfs");
+  private Topology topology;
+
+  @Before
+  public void setUp() throws Exception {
+    DirectoryCleaner.clean(root);
+    write("cpu/online", "0-7");
+    write("cpu/isolated", "6-7");
+    for (int cpu = 0; cpu < 8; cpu++) {
+      write("cpu/cpu" + cpu + "/topology/physical_package_id", String.valueOf(cpu / 2 % 2));
+      write("cpu/cpu" + cpu + "/topology/core_id", String.valueOf(cpu % 2));
+    }
+    write("node/node0/cpulist", "0-1,4-5");
+    write("node/node1/cpulist", "2-3,6-7");
+    topology = new Topology(root);
+  }
+
+  @Test
+  public void assignCpusByPolicies() throws Exception {
+    assertThat(cpus(topology.onePerCore()), is("[{0}, {1}, {2}, {3}]"));
+    assertThat(cpus(topology.acrossSockets()), is("[{0}, {2}, {1}, {3}, {4}, {6}, {5}, {7}]"));
+    assertThat(cpus(topology.isolated()), is("[{6}, {7}]"));
+    assertThat(cpus(topology.numaNode(1)), is("[{2, 3, 6, 7}]"));
+    assertThat(cpus(Policy.cpus("1-2, 5")), is("[{1}, {2}, {5}]"));
+    assertThat(Policy.cpus("1-2").cpusOf(3).toString(), is("{2}"));
+  }
+
+  @Test
+  public void rejectPolicyWithoutCpu() throws Exception {
+    write("cpu/isolated", "");
+    try {
+      topology.isolated();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("No cpu for the policy."));
+    }
+    try {
+      Policy.parse("two-per-core");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), is("Unknown affinity policy two-per-core"));
+    }
+  }
+
+  @Test
+  public void pinThread() throws Exception {
+    final AtomicBoolean pinned = new AtomicBoolean();
+    final Thread thread = new AffinityThreadFactory("pinned", Policy.cpus("0")).newThread(new Runnable() {
+      @Override
+      public void run() {
+        final BitSet cpu0 = new BitSet();
+        cpu0.set(0);
+        pinned.set(AffinityThreadFactory.pin(cpu0));
+      }
+    });
+    thread.start();
+    thread.join();
+    assertThat(thread.getName(), is("pinned-thread-1"));
+    assertThat(pinned.get(), is(System.getProperty("os.name").toLowerCase().contains("linux")));
+  }
+
+  private static String cpus(final Policy policy) {
+    final List<BitSet> sets = new ArrayList<BitSet>();
+    for (int i = 0; i < policy.size(); i++) sets.add(policy.cpusOf(i));
+    return sets.toString();
+  }
+
+  private void write(final String path, final String content) throws Exception {
+    final File file = new File(root, path);
+    file.getParentFile().mkdirs();
+    final FileWriter writer = new FileWriter(file);
+    writer.write(content + "\n");
+    writer.close();
+  }
+}
@@ -0,0 +1,146 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.zhongl.jtoolkit.BoundedRepository.Cause;
+import static com.github.zhongl.jtoolkit.BoundedRepository.Expiry;
+import static com.github.zhongl.jtoolkit.BoundedRepository.RemovalListener;
+import static java.lang.Thread.sleep;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class BoundedRepositoryTest {
+
+  private final Counter counter = new Counter();
+  private final Removals removals = new Removals();
+
+  @Test
+  public void evictLeastRecentlyUsed() throws Exception {
+    final BoundedRepository<Integer, Integer> repository =
+        new BoundedRepository<Integer, Integer>(counter, Evictions.<Integer>lru(2), Expiry.never(), removals);
+
+    repository.getOrCreateIfNotExist(1);
+    repository.getOrCreateIfNotExist(2);
+    repository.getOrCreateIfNotExist(3);
+
+    assertThat(repository.size(), is(2));
+    assertThat(removals.keys.toString(), is("[1]"));
+    assertThat(removals.causes.toString(), is("[SIZE]"));
+
+    repository.getOrCreateIfNotExist(2);
+    repository.getOrCreateIfNotExist(3);
+    assertThat(counter.created.get(), is(3));
+  }
+
+  @Test
+  public void keepFrequentKeysInTinyLfu() throws Exception {
+    final int capacity = 100;
+    final BoundedRepository<Integer, Integer> repository =
+        new BoundedRepository<Integer, Integer>(counter, Evictions.<Integer>tinyLfu(capacity));
+
+    for (int round = 0; round < 10; round++) {
+      for (int hot = 0; hot < capacity / 2; hot++) repository.getOrCreateIfNotExist(hot);
+    }
+    for (int cold = capacity; cold < capacity * 10; cold++) repository.getOrCreateIfNotExist(cold);
+
+    assertThat(repository.size(), lessThanOrEqualTo(capacity));
+    final int created = counter.created.get();
+    for (int hot = 0; hot < capacity / 2; hot++) repository.getOrCreateIfNotExist(hot);
+    assertThat(counter.created.get(), is(created));
+  }
+
+  @Test
+  public void expireAfterWrite() throws Exception {
+    final BoundedRepository<Integer, Integer> repository = new BoundedRepository<Integer, Integer>(
+        counter, Evictions.<Integer>lru(10), Expiry.afterWrite(50L, TimeUnit.MILLISECONDS), removals);
+
+    repository.getOrCreateIfNotExist(1);
+    repository.getOrCreateIfNotExist(1);
+    assertThat(counter.created.get(), is(1));
+
+    sleep(100L);
+    repository.getOrCreateIfNotExist(1);
+    assertThat(counter.created.get(), is(2));
+    assertThat(removals.causes.toString(), is("[EXPIRED]"));
+  }
+
+  @Test
+  public void expireAfterWriteSinceCreated() throws Exception {
+    final Counter slow = new Counter() {
+      @Override
+      public Integer newInstance(Integer key) {
+        try {
+          sleep(100L);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        return super.newInstance(key);
+      }
+    };
+    final BoundedRepository<Integer, Integer> repository = new BoundedRepository<Integer, Integer>(
+        slow, Evictions.<Integer>lru(10), Expiry.afterWrite(80L, TimeUnit.MILLISECONDS), removals);
+
+    repository.getOrCreateIfNotExist(1);
+    repository.getOrCreateIfNotExist(1);
+    assertThat(slow.created.get(), is(1));
+  }
+
+  @Test
+  public void expireAfterAccess() throws Exception {
+    final BoundedRepository<Integer, Integer> repository = new BoundedRepository<Integer, Integer>(
+        counter, Evictions.<Integer>lru(10), Expiry.afterAccess(100L, TimeUnit.MILLISECONDS), removals);
+
+    repository.getOrCreateIfNotExist(1);
+    repository.getOrCreateIfNotExist(2);
+    for (int i = 0; i < 4; i++) {
+      sleep(40L);
+      repository.getOrCreateIfNotExist(1);
+    }
+    repository.cleanUp();
+
+    assertThat(repository.size(), is(1));
+    assertThat(counter.created.get(), is(2));
+    assertThat(removals.keys.toString(), is("[2]"));
+  }
+
+  @Test
+  public void invalidate() throws Exception {
+    final BoundedRepository<Integer, Integer> repository =
+        new BoundedRepository<Integer, Integer>(counter, Evictions.<Integer>lru(10), Expiry.never(), removals);
+
+    repository.getOrCreateIfNotExist(1);
+    repository.invalidate(1);
+    assertThat(repository.size(), is(0));
+    assertThat(removals.causes.toString(), is("[EXPLICIT]"));
+  }
+
+  private static class Counter implements Repository.Factory<Integer, Integer> {
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Override
+    public Integer newInstance(Integer key) {
+      created.incrementAndGet();
+      return key;
+    }
+  }
+
+  private static class Removals implements RemovalListener<Integer, Integer> {
+    private final List<Integer> keys = new ArrayList<Integer>();
+    private final List<Cause> causes = new ArrayList<Cause>();
+
+    @Override
+    public synchronized void onRemoval(Integer key, Integer value, Cause cause) {
+      keys.add(key);
+      causes.add(cause);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class BytesTest {
+
+  @Test
+  public void encodeAndDecodeInHeapAndDirectBuffer() throws Exception {
+    for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(64), ByteBuffer.allocateDirect(64)}) {
+      for (String value : new String[]{"ascii", "中文", "mixed 中文 and 😀"}) {
+        buffer.clear();
+        assertThat(Bytes.encode(value, buffer), is(Bytes.sizeOf(value)));
+        assertThat(Bytes.sizeOf(value), is(Bytes.toBytes(value).length));
+        buffer.flip();
+        assertThat(Bytes.toString(buffer), is(value));
+        assertThat(Bytes.decode(buffer, buffer.remaining()), is(value));
+        assertThat(buffer.hasRemaining(), is(false));
+      }
+    }
+  }
+
+  @Test
+  public void decodeMalformedAsString() throws Exception {
+    final byte[] malformed = {'a', (byte) 0xE4, (byte) 0xB8, 'b', (byte) 0xC0, (byte) 0x80};
+    assertThat(Bytes.decode(ByteBuffer.wrap(malformed), malformed.length), is(new String(malformed, "UTF-8")));
+  }
+
+  @Test
+  public void keepPositionIfOverflow() throws Exception {
+    final ByteBuffer buffer = ByteBuffer.allocate(4);
+    buffer.put((byte) 1);
+    try {
+      Bytes.encode("中文", buffer);
+      fail(BufferOverflowException.class.getName() + " should be thrown.");
+    } catch (BufferOverflowException e) {
+      assertThat(buffer.position(), is(1));
+    }
+  }
+
+  @Test
+  public void primitives() throws Exception {
+    assertThat(Bytes.toInt(Bytes.toBytes(-2)), is(-2));
+    assertThat(Bytes.toInt(Bytes.toBytes(0x01020304)), is(0x01020304));
+    assertThat(Bytes.toLong(Bytes.toBytes(Long.MIN_VALUE + 7L)), is(Long.MIN_VALUE + 7L));
+    assertThat(Bytes.toShort(Bytes.toBytes((short) -300)), is((short) -300));
+    assertThat(Bytes.toBytes(0x01020304), is(ByteBuffer.allocate(4).putInt(0x01020304).array()));
+  }
+
+  @Test
+  public void varintAndZigzag() throws Exception {
+    final ByteBuffer buffer = ByteBuffer.allocate(64);
+    final int[] ints = {0, 1, 127, 128, 300, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+    for (int value : ints) {
+      buffer.clear();
+      Bytes.putVarint(buffer, value);
+      assertThat(buffer.position(), is(Bytes.sizeOfVarint(value)));
+      buffer.flip();
+      assertThat(Bytes.getVarint(buffer), is(value));
+      assertThat(Bytes.unzigzag(Bytes.zigzag(value)), is(value));
+    }
+    final long[] longs = {0L, 1L, 1L << 35, Long.MAX_VALUE, -1L, Long.MIN_VALUE};
+    for (long value : longs) {
+      buffer.clear();
+      Bytes.putVarlong(buffer, value);
+      assertThat(buffer.position(), is(Bytes.sizeOfVarlong(value)));
+      buffer.flip();
+      assertThat(Bytes.getVarlong(buffer), is(value));
+      assertThat(Bytes.unzigzag(Bytes.zigzag(value)), is(value));
+    }
+    assertThat(Bytes.zigzag(-1), is(1));
+    assertThat(Bytes.sizeOfVarint(Bytes.zigzag(-64)), is(1));
+  }
+}
@@ -3,14 +3,17 @@ package com.github.zhongl.jtoolkit;
 import org.junit.After;
 import org.junit.Test;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.github.zhongl.jtoolkit.CentralExecutor.Policy.OPTIMISM;
 import static com.github.zhongl.jtoolkit.CentralExecutor.Policy.PESSIMISM;
 import static com.github.zhongl.jtoolkit.CentralExecutor.*;
 import static java.lang.Thread.sleep;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.isOneOf;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -98,6 +101,119 @@ public class CentralExecutorTest {
     (executor = new CentralExecutor(1)).quota(Runnable.class, reserve(0), elastic(1));
   }
 
+  @Test
+  public void neverExceedReserveUnderContention() throws Exception {
+    executor = new CentralExecutor(4, PESSIMISM);
+    executor.quota(Counted.class, reserve(2), nil());
+
+    final int actors = 4;
+    final RaceCondition.Stress stress = RaceCondition.stress(actors);
+    try {
+      final RaceCondition.Report report = stress.run(new RaceCondition.Scenario<Counted>() {
+        @Override
+        public Counted newState() { return new Counted(actors); }
+
+        @Override
+        public void act(int actor, Counted counted) throws Exception { executor.execute(counted); }
+
+        @Override
+        public Object arbiter(Counted counted) throws Exception {
+          if (!counted.done.await(1L, TimeUnit.SECONDS)) return "stalled";
+          return "max running " + counted.max.get();
+        }
+      }, 1000);
+
+      assertThat(report.toString(), report.errorCount(), is(0L));
+      for (Object outcome : report.outcomes().keySet()) {
+        assertThat(report.toString(), outcome, isOneOf((Object) "max running 1", "max running 2"));
+      }
+    } finally {
+      stress.close();
+    }
+  }
+
+  @Test(timeout = 10000L)
+  public void dequeueTaskOfClassWithFreeQuotaBehindBlockedHead() throws Exception {
+    executor = new CentralExecutor(3, PESSIMISM);
+    executor.quota(Waiting.class, reserve(2), nil());
+    executor.quota(Signal.class, reserve(1), nil());
+
+    final CountDownLatch signaled = new CountDownLatch(1);
+    final CountDownLatch gate = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(5);
+    executor.execute(new Waiting(signaled, done));
+    executor.execute(new Waiting(signaled, done));
+    executor.execute(new Signal(gate, null, done)); // holds quota of Signal.
+    executor.execute(new Waiting(signaled, done)); // head of queue, for greater reserve.
+    executor.execute(new Signal(null, signaled, done)); // behind the head.
+
+    gate.countDown();
+    done.await();
+  }
+
+  /** {@link Counted} is run by all actors of an iteration. */
+  private static class Counted implements Runnable {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger max = new AtomicInteger();
+    final CountDownLatch done;
+
+    Counted(int runs) { done = new CountDownLatch(runs); }
+
+    @Override
+    public void run() {
+      final int current = running.incrementAndGet();
+      for (int m = max.get(); current > m && !max.compareAndSet(m, current); m = max.get()) ;
+      Thread.yield();
+      running.decrementAndGet();
+      done.countDown();
+    }
+  }
+
+  /** {@link Waiting} runs until signaled. */
+  private static class Waiting implements Runnable {
+    private final CountDownLatch signaled;
+    private final CountDownLatch done;
+
+    Waiting(CountDownLatch signaled, CountDownLatch done) {
+      this.signaled = signaled;
+      this.done = done;
+    }
+
+    @Override
+    public void run() {
+      try {
+        signaled.await();
+        done.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** {@link Signal} passes gate if it is given, then signals if it is given. */
+  private static class Signal implements Runnable {
+    private final CountDownLatch gate;
+    private final CountDownLatch signaled;
+    private final CountDownLatch done;
+
+    Signal(CountDownLatch gate, CountDownLatch signaled, CountDownLatch done) {
+      this.gate = gate;
+      this.signaled = signaled;
+      this.done = done;
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (gate != null) gate.await();
+        if (signaled != null) signaled.countDown();
+        done.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
   /** {@link Placeholder }... */
   private class Placeholder implements Runnable {
 
@@ -0,0 +1,120 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class ConfigurationTest {
+
+  private final File file = new File("target/configuration.properties");
+
+  @Before
+  public void setUp() throws Exception { write("a = 1 \nb=true\n"); }
+
+  @After
+  public void tearDown() throws Exception { file.delete(); }
+
+  @Test
+  public void parseOncePerSnapshot() throws Exception {
+    final AtomicInteger conversions = new AtomicInteger();
+    final Configuration.Key<Integer> a = Configuration.key("a", new PropertiesHelper.Converter<Integer>() {
+      @Override
+      public Integer convert(final String value) {
+        conversions.incrementAndGet();
+        return Integer.parseInt(value);
+      }
+    });
+    final Configuration configuration = new Configuration(file);
+
+    assertThat(configuration.get(a), is(1));
+    assertThat(configuration.get(a), is(1));
+    assertThat(conversions.get(), is(1));
+
+    write("a=2\nb=true\n");
+    assertThat(configuration.reload(), is(Collections.singleton("a")));
+    assertThat(configuration.get(a), is(2));
+    assertThat(conversions.get(), is(2));
+  }
+
+  @Test
+  public void missingOrDefault() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty("b", " true");
+    final Configuration configuration = new Configuration(properties);
+
+    assertThat(configuration.get(Configuration.key("b", Configuration.BOOLEAN)), is(true));
+    assertThat(configuration.get(Configuration.key("c", Configuration.LONG, "3")), is(3L));
+    try {
+      configuration.get(Configuration.key("c", Configuration.STRING));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), is("c is missing."));
+    }
+  }
+
+  @Test
+  public void notifyListenersOfKeysChanged() throws Exception {
+    final Configuration configuration = new Configuration(file);
+    final BlockingQueue<Set<String>> ofA = new LinkedBlockingQueue<Set<String>>();
+    final BlockingQueue<Set<String>> ofAny = new LinkedBlockingQueue<Set<String>>();
+    configuration.addListener(listener(ofA), "a");
+    configuration.addListener(listener(ofAny));
+
+    write("a=1\nb=false\nc=x\n");
+    configuration.reload();
+    assertThat(ofA.isEmpty(), is(true));
+    assertThat(ofAny.poll().size(), is(2));
+
+    write("b=false\nc=x\n");
+    configuration.reload();
+    assertThat(ofA.poll(), is(Collections.singleton("a")));
+    assertThat(ofAny.poll(), is(Collections.singleton("a")));
+  }
+
+  @Test
+  public void reloadOnFileChanged() throws Exception {
+    final Configuration configuration = new Configuration(file).watch();
+    final BlockingQueue<Set<String>> changes = new LinkedBlockingQueue<Set<String>>();
+    configuration.addListener(listener(changes), "a");
+    try {
+      write("a=3\nb=true\n");
+      for (Set<String> keys = changes.poll(10, TimeUnit.SECONDS); ; keys = changes.poll(10, TimeUnit.SECONDS)) {
+        assertThat(keys, is(Collections.singleton("a")));
+        if (configuration.snapshot().contains("a")) break; // file may be reloaded after truncated, before written.
+      }
+      assertThat(configuration.get(Configuration.key("a", Configuration.INT)), is(3));
+    } finally {
+      configuration.close();
+    }
+  }
+
+  private static Configuration.Listener listener(final BlockingQueue<Set<String>> changes) {
+    return new Configuration.Listener() {
+      @Override
+      public void onChanged(final Set<String> keys, final Configuration.Snapshot snapshot) { changes.add(keys); }
+    };
+  }
+
+  private void write(final String content) throws Exception {
+    final FileWriter writer = new FileWriter(file);
+    writer.write(content);
+    writer.close();
+  }
+}
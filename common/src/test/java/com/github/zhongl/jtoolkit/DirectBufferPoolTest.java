@@ -0,0 +1,110 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+
+import com.github.zhongl.jtoolkit.DirectBufferPool.Pooled;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class DirectBufferPoolTest {
+
+  @Test
+  public void reuseReleasedBufferOfTheSameClass() throws Exception {
+    final DirectBufferPool pool = new DirectBufferPool(512, 4096, 8192, 4, false);
+    final Pooled first = pool.acquire(1000);
+    final ByteBuffer buffer = first.buffer();
+    assertThat(buffer.isDirect(), is(true));
+    assertThat(buffer.limit(), is(1000));
+    assertThat(buffer.capacity(), is(1024));
+    first.release();
+
+    final Pooled second = pool.acquire(600);
+    assertThat(second.buffer() == buffer, is(true));
+    assertThat(pool.cacheHits(), is(1L));
+    assertThat(pool.inUse(), is(1L));
+    assertThat(pool.allocatedBytes(), is(8192L));
+    second.release();
+    pool.dispose();
+  }
+
+  @Test
+  public void shareReleasedBufferBetweenThreads() throws Exception {
+    final DirectBufferPool pool = new DirectBufferPool(512, 4096, 8192, 0, false);
+    final Pooled pooled = pool.acquire(512);
+    final ByteBuffer buffer = pooled.buffer();
+    RaceCondition.parallel(false, 1, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        pooled.release();
+        return null;
+      }
+    });
+    assertThat(pool.acquire(512).buffer() == buffer, is(true));
+  }
+
+  @Test
+  public void freeBufferLargerThanMaxClassOnRelease() throws Exception {
+    final DirectBufferPool pool = new DirectBufferPool(512, 4096, 8192, 4, false);
+    final Pooled pooled = pool.acquire(10000);
+    assertThat(pooled.buffer().capacity(), is(10000));
+    assertThat(pool.allocatedBytes(), is(10000L));
+    pooled.close();
+    assertThat(pool.allocatedBytes(), is(0L));
+  }
+
+  @Test
+  public void releaseOnlyOnce() throws Exception {
+    final Pooled pooled = new DirectBufferPool().acquire(16);
+    pooled.release();
+    try {
+      pooled.release();
+      fail(IllegalStateException.class.getName() + " should be thrown.");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("Buffer has been released."));
+    }
+  }
+
+  @Test
+  public void detectLeakWithoutRecyclingItsBuffer() throws Exception {
+    final DirectBufferPool pool = new DirectBufferPool(512, 4096, 8192, 0, true);
+    final ByteBuffer leaked = pool.acquire(512).buffer(); // handle never released, but buffer still held
+    for (int i = 0; i < 100 && pool.leaks() == 0L; i++) {
+      System.gc();
+      Thread.sleep(10L);
+      pool.acquire(512).release();
+    }
+    assertThat(pool.leaks(), is(1L));
+    assertThat(pool.inUse(), is(1L));
+    for (int i = 0; i < 16; i++) assertThat(pool.acquire(512).buffer() == leaked, is(false));
+  }
+
+  @Test
+  public void rejectAcquireAfterDispose() throws Exception {
+    final DirectBufferPool pool = new DirectBufferPool(512, 4096, 8192, 4, false);
+    final Pooled pooled = pool.acquire(512);
+    pool.dispose();
+    pooled.release();
+    try {
+      pool.acquire(512);
+      fail(IllegalStateException.class.getName() + " should be thrown.");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("Pool has been disposed."));
+    }
+  }
+
+  @Test
+  public void cleanDirectBuffer() throws Exception {
+    assertThat(DirectByteBufferCleaner.isSupported(), is(true));
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+    assertThat(DirectByteBufferCleaner.tryClean(buffer.duplicate()), is(false));
+    assertThat(DirectByteBufferCleaner.tryClean(ByteBuffer.allocate(16)), is(false));
+    assertThat(DirectByteBufferCleaner.tryClean(buffer), is(true));
+  }
+}
@@ -0,0 +1,100 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class DirectoryCleanerTest {
+
+  private final Path root = Paths.get("target/cleaner");
+  private final Path outside = Paths.get("target/cleaner.outside");
+  private ForkJoinPool pool;
+
+  @Before
+  public void setUp() throws Exception {
+    DirectoryCleaner.clean(root.toFile());
+    DirectoryCleaner.clean(outside.toFile());
+    pool = new ForkJoinPool(4);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pool.shutdown();
+    DirectoryCleaner.clean(root.toFile());
+    DirectoryCleaner.clean(outside.toFile());
+  }
+
+  @Test
+  public void cleanInParallelWithProgress() throws Exception {
+    final int entries = tree(root, 3, 4, 50); // 4 + 16 + 64 directories with 50 files each, and the root.
+    final long interval = 256L;
+    final AtomicLong progress = new AtomicLong();
+    final DirectoryCleaner.Report report = DirectoryCleaner.cleanInParallel(root, pool, new DirectoryCleaner.Listener() {
+      @Override
+      public void onProgress(final long deleted) { progress.incrementAndGet(); }
+
+      @Override
+      public void onError(final Path path, final IOException e) { throw new AssertionError(path); }
+    }, interval);
+
+    assertThat(Files.exists(root), is(false));
+    assertThat(report.deleted(), is((long) entries));
+    assertThat(report.failures(), is(0L));
+    assertThat(progress.get(), is(entries / interval));
+  }
+
+  @Test
+  public void deleteLinkButNotFollow() throws Exception {
+    Files.createDirectories(outside.resolve("dir"));
+    Files.createFile(outside.resolve("dir/file"));
+    Files.createDirectories(root);
+    Files.createSymbolicLink(root.resolve("link"), outside.resolve("dir").toAbsolutePath());
+
+    final DirectoryCleaner.Report report = DirectoryCleaner.cleanInParallel(root);
+
+    assertThat(Files.exists(root), is(false));
+    assertThat(Files.exists(outside.resolve("dir/file")), is(true));
+    assertThat(report.deleted(), is(2L));
+  }
+
+  @Test
+  public void cleanFileOrNothing() throws Exception {
+    assertThat(DirectoryCleaner.cleanInParallel(root).deleted(), is(0L));
+
+    Files.createDirectories(root.getParent());
+    Files.createFile(root);
+    assertThat(DirectoryCleaner.cleanInParallel(root).deleted(), is(1L));
+    assertThat(Files.exists(root), is(false));
+  }
+
+  @Test
+  public void cleanSequentially() throws Exception {
+    tree(root, 2, 3, 10);
+    DirectoryCleaner.clean(root.toFile());
+    assertThat(Files.exists(root), is(false));
+  }
+
+  /** @return number of entries created, including dir. */
+  static int tree(final Path dir, final int depth, final int width, final int files) throws IOException {
+    Files.createDirectories(dir);
+    int entries = 1;
+    for (int i = 0; i < files; i++) Files.createFile(dir.resolve("f" + i));
+    entries += files;
+    if (depth == 0) return entries;
+    for (int i = 0; i < width; i++) entries += tree(dir.resolve("d" + i), depth - 1, width, files);
+    return entries;
+  }
+}
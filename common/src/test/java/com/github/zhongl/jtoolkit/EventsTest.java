@@ -0,0 +1,119 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.zhongl.jtoolkit.Events.Overlap.COALESCE;
+import static com.github.zhongl.jtoolkit.Events.Overlap.SKIP;
+import static java.lang.Thread.sleep;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class EventsTest {
+
+  @Test
+  public void skipTicksDuringExecution() throws Exception {
+    final Slow slow = new Slow(100L);
+    final Events.Periodic periodic = Events.scheduleAtFixedRate(slow, 10L, TimeUnit.MILLISECONDS, SKIP);
+    sleep(250L);
+    periodic.cancel(false);
+    sleep(150L);
+
+    assertThat(slow.concurrent, is(false));
+    assertThat(periodic.skipped(), greaterThan(0L));
+    assertThat(periodic.ticks(), is(periodic.skipped() + slow.count.get()));
+  }
+
+  @Test
+  public void coalesceTicksDuringExecution() throws Exception {
+    final Slow slow = new Slow(100L);
+    final Events.Periodic periodic = Events.scheduleAtFixedRate(slow, 10L, TimeUnit.MILLISECONDS, COALESCE);
+    sleep(250L);
+    periodic.cancel(false);
+    sleep(250L);
+
+    assertThat(slow.concurrent, is(false));
+    assertThat(periodic.coalesced(), greaterThan(0L));
+    assertThat(periodic.ticks(), greaterThan((long) slow.count.get()));
+    assertThat(periodic.late(), greaterThan(0L));
+  }
+
+  @Test
+  public void skipTicksRejectedByFullExecutor() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final Runnable blocking = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          release.await(5L, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    for (int i = 0; i < Events.executorNum * 3; i++) Events.enqueue(blocking); // occupy all threads and the queue.
+
+    final Slow slow = new Slow(0L);
+    final Events.Periodic periodic = Events.scheduleAtFixedRate(slow, 10L, TimeUnit.MILLISECONDS, SKIP);
+    sleep(100L);
+    assertThat(periodic.skipped(), greaterThan(0L));
+    assertThat(slow.count.get(), is(0));
+
+    release.countDown();
+    sleep(100L);
+    periodic.cancel(false);
+    assertThat(slow.count.get(), greaterThan(0));
+  }
+
+  @Test
+  public void denyEnqueueWithoutToken() throws Exception {
+    final TokenBucket bucket = new TokenBucket(1, 1L, TimeUnit.HOURS, 2);
+    final CountDownLatch latch = new CountDownLatch(2);
+    final Runnable task = new Runnable() {
+      @Override
+      public void run() { latch.countDown(); }
+    };
+
+    assertThat(Events.tryEnqueue(task, bucket), is(true));
+    assertThat(Events.tryEnqueue(task, bucket), is(true));
+    assertThat(Events.tryEnqueue(task, bucket), is(false));
+    assertThat(bucket.denied(), is(1L));
+    assertThat(latch.await(1L, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  public void runUnpinnedForInvalidAffinity() throws Exception {
+    assertThat(Events.executorFactory("unknown") instanceof DebugableThreadFactory, is(true));
+    assertThat(Events.executorFactory(null) instanceof DebugableThreadFactory, is(true));
+  }
+
+  /** {@link Slow} */
+  private static class Slow implements Runnable {
+    private final long elapse;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile boolean concurrent;
+
+    private Slow(long elapse) {this.elapse = elapse;}
+
+    @Override
+    public void run() {
+      if (running.incrementAndGet() > 1) concurrent = true;
+      count.incrementAndGet();
+      try {
+        sleep(elapse);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+  }
+}
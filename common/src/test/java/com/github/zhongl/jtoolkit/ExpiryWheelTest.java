@@ -0,0 +1,91 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.zhongl.jtoolkit.ExpiryWheel.Listener;
+import static com.github.zhongl.jtoolkit.ExpiryWheel.Node;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class ExpiryWheelTest {
+
+  private final ManualClock clock = new ManualClock();
+  private final Expired expired = new Expired();
+  private final ExpiryWheel<String> wheel = new ExpiryWheel<String>(clock, 10L, MILLISECONDS, 8, expired);
+
+  @Test
+  public void expireAfterTimeToLive() throws Exception {
+    wheel.schedule("a", 25L, MILLISECONDS);
+    wheel.schedule("b", 50L, MILLISECONDS);
+
+    clock.time += 20L;
+    assertThat(wheel.expire(), is(0));
+    clock.time += 10L;
+    assertThat(wheel.expire(), is(1));
+    assertThat(expired.elements.toString(), is("[a]"));
+    assertThat(wheel.size(), is(1));
+  }
+
+  @Test
+  public void touchToExtend() throws Exception {
+    final Node<String> node = wheel.schedule("a", 20L, MILLISECONDS);
+    clock.time += 10L;
+    assertThat(wheel.touch(node, 20L, MILLISECONDS), is(true));
+
+    clock.time += 10L;
+    assertThat(wheel.expire(), is(0));
+    clock.time += 10L;
+    assertThat(wheel.expire(), is(1));
+    assertThat(wheel.touch(node, 20L, MILLISECONDS), is(false));
+  }
+
+  @Test
+  public void keepEntryLivingLongerThanWheelForRounds() throws Exception {
+    wheel.schedule("a", 200L, MILLISECONDS); // wheel spans 80ms only
+
+    for (int i = 0; i < 19; i++) {
+      clock.time += 10L;
+      assertThat(wheel.expire(), is(0));
+    }
+    clock.time += 10L;
+    assertThat(wheel.expire(), is(1));
+  }
+
+  @Test
+  public void cancel() throws Exception {
+    final Node<String> node = wheel.schedule("a", 10L, MILLISECONDS);
+    assertThat(wheel.cancel(node), is(true));
+    assertThat(wheel.cancel(node), is(false));
+
+    clock.time += 100L;
+    assertThat(wheel.expire(), is(0));
+    assertThat(wheel.size(), is(0));
+  }
+
+  /** {@link ManualClock} would not move unless it is told. */
+  private static class ManualClock extends SystemClock {
+    private volatile long time = 1000L;
+
+    private ManualClock() {
+      super(1000L);
+      stop();
+    }
+
+    @Override
+    public long now() { return time; }
+  }
+
+  private static class Expired implements Listener<String> {
+    private final List<String> elements = new ArrayList<String>();
+
+    @Override
+    public void onExpired(String element) { elements.add(element); }
+  }
+}
@@ -1,10 +1,15 @@
 package com.github.zhongl.jtoolkit;
 
 import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
 
 import com.github.zhongl.jtoolkit.IDPoolBaseOnFile;
 import org.junit.*;
 
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
 public class IDPoolBaseOnFileTest {
   private static final int CAPACITY = 1000;
   private static IDPoolBaseOnFile pool;
@@ -34,6 +39,51 @@ public class IDPoolBaseOnFileTest {
     }
   }
 
+  @Test
+  public void acquireDistinctIdsUnderContention() throws Exception {
+    final int actors = 4;
+    final RaceCondition.Stress stress = RaceCondition.stress(actors);
+    try {
+      final RaceCondition.Report report = stress.run(new RaceCondition.Scenario<int[]>() {
+        @Override
+        public int[] newState() { return new int[actors]; }
+
+        @Override
+        public void act(final int actor, final int[] ids) throws Exception { ids[actor] = pool.acquire(); }
+
+        @Override
+        public Object arbiter(final int[] ids) throws Exception {
+          final Set<Integer> distinct = new HashSet<Integer>();
+          for (final int id : ids) {
+            distinct.add(id);
+            pool.release(id);
+          }
+          return distinct.size() == ids.length ? "distinct" : "duplicated";
+        }
+      }, 2000);
+      assertThat(report.toString(), report.count("distinct"), is(2000L));
+    } finally {
+      stress.close();
+    }
+  }
+
+  @Test
+  public void rejectOperationsAfterDisposed() throws Exception {
+    final IDPoolBaseOnFile disposed = new IDPoolBaseOnFile(8, "target/disposed.id.set");
+    disposed.dispose();
+    disposed.dispose();
+    try {
+      disposed.acquire();
+      Assert.fail(IllegalStateException.class.getName() + " should be thrown.");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("Pool has been disposed."));
+    }
+    try {
+      disposed.release(0);
+      Assert.fail(IllegalStateException.class.getName() + " should be thrown.");
+    } catch (IllegalStateException expected) { }
+  }
+
   @After
   public void tearDown() throws Exception { pool.reset(); }
 
@@ -0,0 +1,98 @@
+package com.github.zhongl.jtoolkit;
+
+import com.github.zhongl.jtoolkit.InstrumentedThreadFactory.ThreadTelemetry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class InstrumentedThreadFactoryTest {
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private final SystemClock clock = new SystemClock(1L);
+
+  @After
+  public void tearDown() throws Exception { clock.stop(); }
+
+  @Test
+  public void recordTasksOfCentralExecutor() throws Exception {
+    final InstrumentedThreadFactory factory =
+        new InstrumentedThreadFactory(new DebugableThreadFactory("instrumented", true), clock, 0L, true);
+    final CentralExecutor executor = new CentralExecutor(2, CentralExecutor.Policy.PESSIMISM, factory);
+    executor.quota(Garbage.class, CentralExecutor.reserve(2), CentralExecutor.nil());
+    try {
+      final CountDownLatch latch = new CountDownLatch(2);
+      for (int i = 0; i < 2; i++) executor.execute(new Garbage(latch)); // within reserve, without queueing.
+      assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+
+      List<ThreadTelemetry> telemetry = factory.snapshot();
+      for (long deadline = System.currentTimeMillis() + 5000L; tasks(telemetry) < 2; telemetry = factory.snapshot()) {
+        if (System.currentTimeMillis() > deadline) break;
+        Thread.sleep(1L);
+      }
+      assertThat(tasks(telemetry), is(2L));
+      assertThat(telemetry.size(), is(2));
+      for (final ThreadTelemetry thread : telemetry) {
+        assertThat(thread.name().startsWith("instrumented-thread-"), is(true));
+        if (thread.tasks() == 0) continue;
+        assertThat(thread.cpuNanos() != 0L, is(true));
+        assertThat(thread.allocatedBytes() == -1L || thread.allocatedBytes() > 128 * 1024, is(true));
+        assertThat(thread.blockedMillis() >= 0L, is(THREADS.isThreadContentionMonitoringSupported()));
+      }
+    } finally {
+      executor.shutdownNow(); // threads are blocked in dequeue of policy after tasks.
+    }
+  }
+
+  @Test
+  public void sampleOnceAnInterval() throws Exception {
+    final InstrumentedThreadFactory factory =
+        new InstrumentedThreadFactory(new DebugableThreadFactory("instrumented", true), clock, 60000L);
+    final List<ThreadTelemetry> empty = factory.snapshot();
+    final Thread thread = factory.newThread(new Runnable() {
+      @Override
+      public void run() { }
+    });
+    thread.start();
+    thread.join();
+
+    assertThat(factory.snapshot() == empty, is(true));
+    assertThat(empty.isEmpty(), is(true));
+  }
+
+  @Test
+  public void ignoreThreadsNotInstrumented() throws Exception {
+    InstrumentedThreadFactory.taskStarted();
+    InstrumentedThreadFactory.taskFinished();
+  }
+
+  private static final class Garbage implements Runnable {
+    private final CountDownLatch latch;
+
+    private Garbage(final CountDownLatch latch) {this.latch = latch;}
+
+    @Override
+    public void run() {
+      final byte[][] garbage = new byte[128][];
+      for (int j = 0; j < garbage.length; j++) garbage[j] = new byte[1024];
+      latch.countDown();
+    }
+  }
+
+  private static long tasks(final List<ThreadTelemetry> telemetry) {
+    long tasks = 0L;
+    for (final ThreadTelemetry thread : telemetry) tasks += thread.tasks();
+    return tasks;
+  }
+}
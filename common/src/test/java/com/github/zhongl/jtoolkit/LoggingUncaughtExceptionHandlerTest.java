@@ -0,0 +1,84 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class LoggingUncaughtExceptionHandlerTest {
+  private LoggingUncaughtExceptionHandler handler;
+
+  @After
+  public void tearDown() throws Exception {
+    if (handler != null) handler.close();
+  }
+
+  @Test
+  public void suppressSameFingerprintBeyondLimit() throws Exception {
+    handler = new LoggingUncaughtExceptionHandler(2, 3600000L, 16);
+    for (int i = 0; i < 10; i++) handler.uncaughtException(Thread.currentThread(), failure());
+    handler.uncaughtException(Thread.currentThread(), new IOException());
+
+    assertThat(handler.uncaught(), is(11L));
+    assertThat(handler.suppressed(), is(8L));
+    awaitLogged(3L);
+
+    final Map<String, Long> occurrences = handler.occurrences();
+    assertThat(occurrences.size(), is(2));
+    for (final Map.Entry<String, Long> entry : occurrences.entrySet()) {
+      if (entry.getKey().startsWith(IllegalStateException.class.getName())) assertThat(entry.getValue(), is(10L));
+      else assertThat(entry.getKey(), startsWith(IOException.class.getName()));
+    }
+  }
+
+  @Test
+  public void logAgainInNextInterval() throws Exception {
+    handler = new LoggingUncaughtExceptionHandler(1, 50L, 16);
+    for (int i = 0; i < 3; i++) { // same fingerprint from the same line
+      if (i == 2) Thread.sleep(100L);
+      handler.uncaughtException(Thread.currentThread(), failure());
+    }
+
+    assertThat(handler.suppressed(), is(1L));
+    awaitLogged(2L);
+  }
+
+  @Test
+  public void unwrapCauseOfRuntimeException() throws Exception {
+    handler = new LoggingUncaughtExceptionHandler(1, 3600000L, 16);
+    handler.uncaughtException(Thread.currentThread(), new RuntimeException(new IOException()));
+    assertThat(handler.occurrences().keySet().iterator().next(), startsWith(IOException.class.getName()));
+  }
+
+  @Test
+  public void keepLoggingAfterAFailedRecord() throws Exception {
+    handler = new LoggingUncaughtExceptionHandler(1, 3600000L, 16);
+    handler.uncaughtException(Thread.currentThread(), new IllegalStateException() {
+      @Override
+      public String getMessage() { throw new UnsupportedOperationException(); }
+    });
+    handler.uncaughtException(Thread.currentThread(), new IOException());
+    for (int i = 0; i < 100 && handler.logged() < 1L; i++) Thread.sleep(10L);
+    assertThat(handler.logged() >= 1L, is(true));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rejectClosingSingleton() throws Exception {
+    ((LoggingUncaughtExceptionHandler) LoggingUncaughtExceptionHandler.SINGLETON).close();
+  }
+
+  private static IllegalStateException failure() { return new IllegalStateException("dependency failed"); }
+
+  private void awaitLogged(final long expect) throws InterruptedException {
+    for (int i = 0; i < 100 && handler.logged() < expect; i++) Thread.sleep(10L);
+    assertThat(handler.logged(), is(expect));
+  }
+}
@@ -0,0 +1,99 @@
+package com.github.zhongl.jtoolkit;
+
+import com.github.zhongl.jtoolkit.MappedSegments.Segment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class MappedSegmentsTest {
+
+  private final File file = new File("target/mapped.segments");
+
+  @Before
+  public void setUp() throws Exception { file.delete(); }
+
+  @After
+  public void tearDown() throws Exception { file.delete(); }
+
+  @Test
+  public void mapOnDemandAndUnmapAfterReleasedByAll() throws Exception {
+    final MappedSegments segments = new MappedSegments(file, 4096);
+    final Segment first = segments.acquire(0L);
+    final Segment second = segments.acquire(4095L);
+    final Segment third = segments.acquire(8192L);
+    assertThat(third.offset(), is(8192L));
+    assertThat(segments.mapped(), is(2));
+    assertThat(file.length(), is(12288L));
+
+    first.release();
+    assertThat(segments.mapped(), is(2));
+    second.release();
+    assertThat(segments.mapped(), is(1));
+    third.close();
+    assertThat(segments.mapped(), is(0));
+    segments.close();
+  }
+
+  @Test
+  public void keepIdleSegmentsMapped() throws Exception {
+    final MappedSegments segments = new MappedSegments(file, 4096, FileChannel.MapMode.READ_WRITE, 1);
+    final Segment first = segments.acquire(0L);
+    first.buffer().putInt(0, 7);
+    first.release();
+    assertThat(segments.mapped(), is(1));
+
+    segments.acquire(4096L).release(); // evict the first idle one
+    assertThat(segments.mapped(), is(1));
+    final Segment again = segments.acquire(0L);
+    assertThat(again.buffer().getInt(0), is(7));
+    again.release();
+    segments.close();
+    assertThat(segments.mapped(), is(0));
+  }
+
+  @Test
+  public void unmapSegmentInUseAfterClosed() throws Exception {
+    final MappedSegments segments = new MappedSegments(file, 4096, FileChannel.MapMode.READ_WRITE, 4);
+    final Segment segment = segments.acquire(0L);
+    segment.buffer().put((byte) 1);
+    segment.prefetch();
+    segment.force();
+    segments.close();
+    assertThat(segments.mapped(), is(1));
+
+    segment.release();
+    assertThat(segments.mapped(), is(0));
+    try {
+      segments.acquire(0L);
+      fail(IllegalStateException.class.getName() + " should be thrown.");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("Segments have been closed."));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rejectForceAfterReleased() throws Exception {
+    final MappedSegments segments = new MappedSegments(file, 4096);
+    final Segment segment = segments.acquire(0L);
+    segment.release();
+    segment.force();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void releaseOnlyOnce() throws Exception {
+    final MappedSegments segments = new MappedSegments(file, 4096);
+    final Segment segment = segments.acquire(0L);
+    segment.release();
+    segment.release();
+  }
+}
@@ -0,0 +1,102 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.zhongl.jtoolkit.OffHeapRepository.Serializer;
+import static com.github.zhongl.jtoolkit.OffHeapRepository.Storage;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class OffHeapRepositoryTest {
+
+  private final AtomicInteger created = new AtomicInteger();
+  private final Repository.Factory<Integer, String> factory = new Repository.Factory<Integer, String>() {
+    @Override
+    public String newInstance(Integer key) {
+      created.incrementAndGet();
+      return "value-" + key;
+    }
+  };
+
+  private OffHeapRepository<Integer, String> repository;
+
+  @After
+  public void tearDown() throws Exception { repository.dispose(); }
+
+  @Test
+  public void getStoredValueAcrossChunksAndResizing() throws Exception {
+    repository = new OffHeapRepository<Integer, String>(factory, INT, STRING, Storage.direct(), 1024, 16);
+
+    for (int i = 0; i < 1000; i++) assertThat(repository.getOrCreateIfNotExist(i), is("value-" + i));
+    for (int i = 0; i < 1000; i++) assertThat(repository.getOrCreateIfNotExist(i), is("value-" + i));
+
+    assertThat(repository.size(), is(1000));
+    assertThat(created.get(), is(1000));
+  }
+
+  @Test
+  public void storeInMappedFile() throws Exception {
+    final File file = new File("target/off-heap.repository");
+    file.delete();
+    repository = new OffHeapRepository<Integer, String>(factory, INT, STRING, Storage.mapped(file), 4096, 16);
+
+    for (int i = 0; i < 500; i++) repository.getOrCreateIfNotExist(i);
+    assertThat(repository.getOrCreateIfNotExist(499), is("value-499"));
+    assertThat(file.length(), is(repository.usedBytes() / 4096 * 4096 + 4096));
+  }
+
+  @Test
+  public void createOnceConcurrently() throws Exception {
+    repository = new OffHeapRepository<Integer, String>(factory, INT, STRING);
+
+    RaceCondition.parallel(true, 8, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        for (int i = 0; i < 1000; i++) repository.getOrCreateIfNotExist(i);
+        return null;
+      }
+    });
+
+    assertThat(repository.size(), is(1000));
+    assertThat(created.get(), is(1000));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rejectGetAfterDisposed() throws Exception {
+    repository = new OffHeapRepository<Integer, String>(factory, INT, STRING, Storage.direct(), 1024, 16);
+    repository.getOrCreateIfNotExist(1);
+    repository.dispose();
+    repository.getOrCreateIfNotExist(1);
+  }
+
+  private static final Serializer<Integer> INT = new Serializer<Integer>() {
+    @Override
+    public int sizeOf(Integer value) { return 4; }
+
+    @Override
+    public void write(Integer value, ByteBuffer buffer) { buffer.putInt(value); }
+
+    @Override
+    public Integer read(ByteBuffer buffer) { return buffer.getInt(); }
+  };
+
+  private static final Serializer<String> STRING = new Serializer<String>() {
+    @Override
+    public int sizeOf(String value) { return Bytes.toBytes(value).length; }
+
+    @Override
+    public void write(String value, ByteBuffer buffer) { buffer.put(Bytes.toBytes(value)); }
+
+    @Override
+    public String read(ByteBuffer buffer) { return Bytes.toString(buffer); }
+  };
+}
@@ -0,0 +1,40 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class RaceConditionTest {
+
+  @Test(timeout = 10000L)
+  public void abortStressIfNewStateFailed() throws Exception {
+    final RaceCondition.Stress stress = RaceCondition.stress(2);
+    try {
+      stress.run(new RaceCondition.Scenario<int[]>() {
+        private int created;
+
+        @Override
+        public int[] newState() {
+          if (++created > 3) throw new IllegalArgumentException("broken");
+          return new int[1];
+        }
+
+        @Override
+        public void act(int actor, int[] state) { }
+
+        @Override
+        public Object arbiter(int[] state) { return "done"; }
+      }, 100);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getCause().getCause().getMessage(), is("broken"));
+    } finally {
+      stress.close();
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.github.zhongl.jtoolkit;
+
+import com.github.zhongl.jtoolkit.RecurseTree.Order;
+import com.github.zhongl.jtoolkit.RecurseTree.Traversal;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class RecurseTreeTest {
+
+  /** Node "a" has children "a0" and "a1", until length of 3. */
+  private final AtomicInteger expanded = new AtomicInteger();
+  private final RecurseTree.IteratorFactory<String> binary = new RecurseTree.IteratorFactory<String>() {
+    @Override
+    public Iterator<String> iterator(final String obj) {
+      expanded.incrementAndGet();
+      if (obj.length() == 3) return RecurseTree.empty();
+      return Arrays.asList(obj + "0", obj + "1").iterator();
+    }
+  };
+
+  @Test
+  public void traverseInOrders() throws Exception {
+    assertThat(list(RecurseTree.traverse("a", binary, Order.PRE)),
+               is(Arrays.asList("a", "a0", "a00", "a01", "a1", "a10", "a11")));
+    assertThat(list(RecurseTree.traverse("a", binary, Order.POST)),
+               is(Arrays.asList("a00", "a01", "a0", "a10", "a11", "a1", "a")));
+    assertThat(list(RecurseTree.traverse("a", binary, Order.BREADTH)),
+               is(Arrays.asList("a", "a0", "a1", "a00", "a01", "a10", "a11")));
+
+    final List<String> called = new ArrayList<String>();
+    RecurseTree.run("a", binary, new RecurseTree.Callback<String>() {
+      @Override
+      public void onCallback(final String obj) { called.add(obj); }
+    });
+    assertThat(called, is(list(RecurseTree.traverse("a", binary, Order.POST))));
+  }
+
+  @Test
+  public void limitDepthWithoutExpanding() throws Exception {
+    for (final Order order : Order.values()) {
+      expanded.set(0);
+      final Traversal<String> traversal = RecurseTree.traverse("a", binary, order, 1);
+      final List<String> nodes = new ArrayList<String>();
+      while (traversal.hasNext()) {
+        nodes.add(traversal.next());
+        assertThat(traversal.depth(), is(nodes.get(nodes.size() - 1).length() - 1));
+      }
+      assertThat(nodes.size(), is(3));
+      assertThat(expanded.get(), is(1));
+    }
+    assertThat(list(RecurseTree.traverse("a", binary, Order.PRE, 0)), is(Collections.singletonList("a")));
+  }
+
+  @Test
+  public void cancelLazily() throws Exception {
+    final Traversal<String> traversal = RecurseTree.traverse("a", binary, Order.PRE);
+    assertThat(traversal.next(), is("a"));
+    assertThat(traversal.next(), is("a0"));
+    assertThat(expanded.get(), is(1));
+    traversal.cancel();
+    assertThat(traversal.hasNext(), is(false));
+    assertThat(expanded.get(), is(1));
+  }
+
+  @Test
+  public void streamBySpliterator() throws Exception {
+    final Set<String> nodes = StreamSupport.stream(RecurseTree.traverse("a", binary, Order.BREADTH).spliterator(), true)
+                                           .collect(Collectors.<String>toSet());
+    assertThat(nodes.size(), is(7));
+  }
+
+  @Test
+  public void runInParallelInPostOrder() throws Exception {
+    final Set<String> called = ConcurrentHashMap.newKeySet();
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    RecurseTree.runInParallel("a", binary, new RecurseTree.Callback<String>() {
+      @Override
+      public void onCallback(final String obj) {
+        if (obj.length() < 3 && !(called.contains(obj + "0") && called.contains(obj + "1"))) fail(obj);
+        called.add(obj);
+      }
+    }, pool);
+    pool.shutdown();
+    assertThat(called.size(), is(7));
+  }
+
+  @Test
+  public void walkDeepTreeWithoutOverflow() throws Exception {
+    final RecurseTree.IteratorFactory<Integer> chain = new RecurseTree.IteratorFactory<Integer>() {
+      @Override
+      public Iterator<Integer> iterator(final Integer obj) {
+        return obj == 100000 ? RecurseTree.<Integer>empty() : Collections.singleton(obj + 1).iterator();
+      }
+    };
+    final AtomicInteger count = new AtomicInteger();
+    final RecurseTree.Callback<Integer> counting = new RecurseTree.Callback<Integer>() {
+      @Override
+      public void onCallback(final Integer obj) { count.incrementAndGet(); }
+    };
+
+    RecurseTree.run(0, chain, counting);
+    assertThat(count.get(), is(100001));
+    RecurseTree.runInParallel(0, chain, counting, ForkJoinPool.commonPool());
+    assertThat(count.get(), is(200002));
+  }
+
+  @Test
+  public void cancelParallelRun() throws Exception {
+    final RecurseTree.Cancellation cancellation = new RecurseTree.Cancellation();
+    final AtomicInteger count = new AtomicInteger();
+    RecurseTree.runInParallel("a", binary, new RecurseTree.Callback<String>() {
+      @Override
+      public void onCallback(final String obj) {
+        count.incrementAndGet();
+        cancellation.cancel();
+      }
+    }, ForkJoinPool.commonPool(), cancellation);
+    assertThat(cancellation.isCancelled(), is(true));
+    assertThat(count.get() < 7, is(true));
+  }
+
+  private static List<String> list(final Iterator<String> iterator) {
+    final List<String> list = new ArrayList<String>();
+    while (iterator.hasNext()) list.add(iterator.next());
+    return list;
+  }
+}
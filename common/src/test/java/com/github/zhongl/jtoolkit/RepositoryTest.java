@@ -0,0 +1,216 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.zhongl.jtoolkit.Repository.Failure;
+import static java.lang.Thread.sleep;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class RepositoryTest {
+
+  @Test
+  public void rememberFailureByDefault() throws Exception {
+    final Flaky flaky = new Flaky(1);
+    final Repository<String, String> repository = new Repository<String, String>(flaky) {};
+
+    assertFailed(repository, "key");
+    assertFailed(repository, "key");
+    assertThat(flaky.attempts.get(), is(1));
+  }
+
+  @Test
+  public void forgetFailure() throws Exception {
+    final Flaky flaky = new Flaky(1);
+    final Repository<String, String> repository = new Repository<String, String>(flaky, Failure.forget()) {};
+
+    assertFailed(repository, "key");
+    assertThat(repository.getOrCreateIfNotExist("key"), is("key"));
+    assertThat(flaky.attempts.get(), is(2));
+  }
+
+  @Test
+  public void rememberFailureForAWhile() throws Exception {
+    final Flaky flaky = new Flaky(1);
+    final Repository<String, String> repository =
+        new Repository<String, String>(flaky, Failure.rememberFor(50L, TimeUnit.MILLISECONDS)) {};
+
+    assertFailed(repository, "key");
+    assertFailed(repository, "key");
+    sleep(100L);
+    assertThat(repository.getOrCreateIfNotExist("key"), is("key"));
+    assertThat(flaky.attempts.get(), is(2));
+  }
+
+  @Test
+  public void shareRetriesBetweenConcurrentCallers() throws Exception {
+    final Flaky flaky = new Flaky(2);
+    final Repository<String, String> repository =
+        new Repository<String, String>(flaky, Failure.forget().retry(3, 20L, TimeUnit.MILLISECONDS)) {};
+
+    final List<String> values = RaceCondition.parallel(true, 4, new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        return repository.getOrCreateIfNotExist("key");
+      }
+    });
+
+    for (String value : values) assertThat(value, is("key"));
+    assertThat(flaky.attempts.get(), is(3));
+  }
+
+  @Test
+  public void getAsyncWithoutBlocking() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicInteger created = new AtomicInteger();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final Repository<String, String> repository = new Repository<String, String>(new Repository.Factory<String, String>() {
+      @Override
+      public String newInstance(String key) {
+        created.incrementAndGet();
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        return key;
+      }
+    }, Failure.remember(), executor) {};
+
+    try {
+      final CompletableFuture<String> first = repository.getAsync("key");
+      final CompletableFuture<String> second = repository.getAsync("key");
+      assertThat(first.isDone(), is(false));
+
+      latch.countDown();
+      assertThat(first.get(1L, TimeUnit.SECONDS), is("key"));
+      assertThat(second.get(1L, TimeUnit.SECONDS), is("key"));
+      assertThat(created.get(), is(1));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void getAsyncByDefaultExecutor() throws Exception {
+    final Repository<String, String> repository = new Repository<String, String>(new Repository.Factory<String, String>() {
+      @Override
+      public String newInstance(String key) { return Thread.currentThread().getName(); }
+    }) {};
+
+    assertThat(repository.getAsync("key").get(1L, TimeUnit.SECONDS).startsWith("repository-thread-"), is(true));
+  }
+
+  @Test
+  public void failGetAsyncRejectedByExecutor() throws Exception {
+    final Executor rejecting = new Executor() {
+      @Override
+      public void execute(Runnable command) { throw new RejectedExecutionException(); }
+    };
+    final Repository<String, String> repository = new Repository<String, String>(new Repository.Factory<String, String>() {
+      @Override
+      public String newInstance(String key) { return key; }
+    }, Failure.remember(), rejecting) {};
+
+    try {
+      repository.getAsync("key").get(1L, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause() instanceof RejectedExecutionException, is(true));
+    }
+    assertThat(repository.getOrCreateIfNotExist("key"), is("key"));
+  }
+
+  @Test
+  public void refreshAheadAndServeStaleValue() throws Exception {
+    final AtomicInteger version = new AtomicInteger();
+    final Executor sameThread = new Executor() {
+      @Override
+      public void execute(Runnable command) { command.run(); }
+    };
+    final Repository<String, Integer> repository = new Repository<String, Integer>(new Repository.Factory<String, Integer>() {
+      @Override
+      public Integer newInstance(String key) { return version.incrementAndGet(); }
+    }, Failure.remember(), sameThread, 50L, TimeUnit.MILLISECONDS) {};
+
+    assertThat(repository.getOrCreateIfNotExist("key"), is(1));
+    assertThat(repository.getOrCreateIfNotExist("key"), is(1));
+    sleep(100L);
+    assertThat(repository.getOrCreateIfNotExist("key"), is(1));
+    assertThat(repository.getAsync("key").get(), is(2));
+  }
+
+  @Test
+  public void createAbsentKeysInOneBulkCall() throws Exception {
+    final List<Collection<String>> calls = new CopyOnWriteArrayList<Collection<String>>();
+    final Repository<String, String> repository = new Repository<String, String>(new Repository.BulkFactory<String, String>() {
+      @Override
+      public Map<String, String> newInstances(Collection<String> keys) {
+        calls.add(new ArrayList<String>(keys));
+        final Map<String, String> values = new HashMap<String, String>();
+        for (String key : keys) values.put(key, key.toUpperCase());
+        return values;
+      }
+
+      @Override
+      public String newInstance(String key) { return key.toUpperCase(); }
+    }) {};
+
+    repository.getOrCreateIfNotExist("b");
+    final Map<String, String> values = repository.getOrCreateAll(Arrays.asList("a", "b", "c", "a"));
+
+    assertThat(values.toString(), is("{a=A, b=B, c=C}"));
+    assertThat(calls.toString(), is("[[a, c]]"));
+  }
+
+  @Test
+  public void failKeyMissingInBulkResult() throws Exception {
+    final Repository<String, String> repository = new Repository<String, String>(new Repository.BulkFactory<String, String>() {
+      @Override
+      public Map<String, String> newInstances(Collection<String> keys) { return Collections.singletonMap("a", "A"); }
+
+      @Override
+      public String newInstance(String key) { return key.toUpperCase(); }
+    }, Failure.forget()) {};
+
+    try {
+      repository.getOrCreateAll(Arrays.asList("a", "b"));
+      fail(ExecutionException.class.getName() + " should be thrown.");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause().getMessage(), is("Missing instance of b"));
+    }
+    assertThat(repository.getOrCreateIfNotExist("a"), is("A"));
+    assertThat(repository.getOrCreateIfNotExist("b"), is("B"));
+  }
+
+  private static void assertFailed(Repository<String, String> repository, String key) throws Exception {
+    try {
+      repository.getOrCreateIfNotExist(key);
+      fail(ExecutionException.class.getName() + " should be thrown.");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause().getMessage(), is("flaky"));
+    }
+  }
+
+  /** {@link Flaky} fails at first. */
+  private static class Flaky implements Repository.Factory<String, String> {
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final int failures;
+
+    private Flaky(int failures) {this.failures = failures;}
+
+    @Override
+    public String newInstance(String key) {
+      if (attempts.incrementAndGet() <= failures) throw new IllegalStateException("flaky");
+      return key;
+    }
+  }
+}
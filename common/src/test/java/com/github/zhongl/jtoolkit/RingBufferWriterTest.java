@@ -0,0 +1,80 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class RingBufferWriterTest {
+
+  @Test
+  public void keepTheLastBytes() throws Exception {
+    final RingBufferWriter writer = new RingBufferWriter(8);
+    writer.write("0123456789");
+    assertThat(writer.toString(), is("23456789"));
+
+    writer.write("ab");
+    assertThat(writer.toString(), is("456789ab"));
+    assertThat(writer.written(), is(12L));
+  }
+
+  @Test
+  public void encodeUtf8AndNeverBeginInTheMiddleOfChar() throws Exception {
+    final RingBufferWriter writer = new RingBufferWriter(8);
+    writer.write("中文");
+    assertThat(writer.toString(), is("中文"));
+
+    writer.write("abc"); // the first byte left is in the middle of 中
+    assertThat(writer.toString(), is("文abc"));
+
+    writer.write("😀"); // 4 bytes
+    assertThat(writer.toString(), is("abc😀"));
+  }
+
+  @Test
+  public void writeSingleChar() throws Exception {
+    final RingBufferWriter writer = new RingBufferWriter(8);
+    writer.write('a');
+    writer.write('中');
+    writer.write('\uD83D'); // a lone surrogate is malformed
+    assertThat(writer.toString(), is("a中?"));
+    assertThat(writer.written(), is(5L));
+  }
+
+  @Test
+  public void drainSinceLastTime() throws Exception {
+    final RingBufferWriter writer = new RingBufferWriter(16);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    writer.write("hello ");
+    assertThat(writer.drainTo(Channels.newChannel(out)), is(6L));
+    writer.write("world");
+    assertThat(writer.drainTo(Channels.newChannel(out)), is(5L));
+    assertThat(writer.drainTo(Channels.newChannel(out)), is(0L));
+    assertThat(out.toString("UTF-8"), is("hello world"));
+  }
+
+  @Test
+  public void appendConcurrently() throws Exception {
+    final RingBufferWriter writer = new RingBufferWriter(1 << 16);
+    final List<Integer> written = RaceCondition.parallel(true, 4, new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        for (int i = 0; i < 1000; i++) writer.write("0123456789\n");
+        return 1000;
+      }
+    });
+
+    assertThat(written.size(), is(4));
+    assertThat(writer.written(), is(4 * 1000 * 11L));
+    for (String line : writer.toString().split("\n")) assertThat(line, is("0123456789"));
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class SizeConverterTest {
+
+  @Test
+  public void parseBinaryAndDecimalUnits() throws Exception {
+    assertThat(SizeConverter.parse("512"), is(512L));
+    assertThat(SizeConverter.parse("512B"), is(512L));
+    assertThat(SizeConverter.parse("4K"), is(4096L));
+    assertThat(SizeConverter.parse("4k"), is(4096L));
+    assertThat(SizeConverter.parse("4KiB"), is(4096L));
+    assertThat(SizeConverter.parse("4KB"), is(4000L));
+    assertThat(SizeConverter.parse(" 64 MiB "), is(64L << 20));
+    assertThat(SizeConverter.parse("3G"), is(3L << 30));
+    assertThat(SizeConverter.parse("3gb"), is(3000000000L));
+    assertThat(SizeConverter.parse("2T"), is(2L << 40));
+    assertThat(SizeConverter.parse("2TB"), is(2000000000000L));
+    assertThat(SizeConverter.parse("9223372036854775807"), is(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void rejectIllegalSizes() throws Exception {
+    for (final String illegal : new String[]{"", "K", "-1K", "1.5G", "4X", "4KiBB", "4Ki", "4 K B", "4BB"}) {
+      try {
+        SizeConverter.parse(illegal);
+        fail(illegal);
+      } catch (IllegalArgumentException e) {
+        assertThat(e.getMessage(), is(illegal + " is not a size."));
+      }
+    }
+    for (final String overflow : new String[]{"9223372036854775808", "8388608T", "9223372036854776KB"}) {
+      try {
+        SizeConverter.parse(overflow);
+        fail(overflow);
+      } catch (IllegalArgumentException e) {
+        assertThat(e.getMessage(), is(overflow + " is out of bound."));
+      }
+    }
+  }
+
+  @Test
+  public void convertIntegerWithinBound() throws Exception {
+    final SizeConverter converter = new SizeConverter();
+    assertThat(converter.convert("1M"), is(1 << 20));
+    assertThat(converter.convert("2047M"), is(2047 << 20));
+    try {
+      converter.convert("2G");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), is("2G is out of bound."));
+    }
+  }
+
+  @Test
+  public void readSizeByPropertiesHelper() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty("segment", " 4G ");
+    properties.setProperty("buffer", "64K");
+    final PropertiesHelper helper = new PropertiesHelper(properties);
+
+    assertThat(helper.getSize("segment"), is(4L << 30));
+    assertThat(helper.getSize("missing", 1L), is(1L));
+    assertThat(helper.get(new SizeConverter(), "buffer"), is(64 << 10));
+    assertThat(helper.get(SizeConverter.LONG, "segment"), is(4L << 30));
+    assertThat(new Configuration(properties).get(Configuration.key("segment", SizeConverter.LONG)), is(4L << 30));
+  }
+}
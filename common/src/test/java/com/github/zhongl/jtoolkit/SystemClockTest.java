@@ -2,8 +2,11 @@ package com.github.zhongl.jtoolkit;
 
 import org.junit.Test;
 
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -24,5 +27,73 @@ public class SystemClockTest {
         assertThat(nowFromClock - nowFromSystem, lessThanOrEqualTo(precision));
     }
 
+    @Test
+    public void shouldGetNanoTimeAndMicros() throws Exception {
+        long precision = 10L;
+        SystemClock clock = new SystemClock(precision);
+
+        long nanoTime = clock.nanoTime();
+        long micros = clock.nowMicros();
+        Thread.sleep(precision * 5);
+
+        assertThat(clock.nanoTime() - nanoTime, greaterThanOrEqualTo(precision * 1000000L));
+        assertThat(clock.nowMicros() - micros, greaterThanOrEqualTo(precision * 2000L));
+        assertThat(Math.abs(clock.nowMicros() / 1000L - System.currentTimeMillis()), lessThanOrEqualTo(precision));
+    }
+
+    @Test
+    public void shouldNeverGoBackwards() throws Exception {
+        SystemClock clock = new SystemClock(1L);
+        long lastNow = clock.now();
+        long lastNanoTime = clock.nanoTime();
+        long lastMicros = clock.nowMicros();
+        long deadline = System.currentTimeMillis() + 100L;
+        while (System.currentTimeMillis() < deadline) {
+            long now = clock.now();
+            long nanoTime = clock.nanoTime();
+            long micros = clock.nowMicros();
+            assertThat(now, greaterThanOrEqualTo(lastNow));
+            assertThat(nanoTime, greaterThanOrEqualTo(lastNanoTime));
+            assertThat(micros, greaterThanOrEqualTo(lastMicros));
+            lastNow = now;
+            lastNanoTime = nanoTime;
+            lastMicros = micros;
+        }
+    }
+
+    @Test
+    public void shouldShareOneClockForEachPrecision() throws Exception {
+        SystemClock clock = SystemClock.shared(5L);
+        assertThat(SystemClock.shared(5L), is(sameInstance(clock)));
+        assertThat(SystemClock.shared(6L), is(not(sameInstance(clock))));
+    }
+
+    @Test
+    public void shouldStopSharedClockByTheLastCaller() throws Exception {
+        SystemClock clock = SystemClock.shared(7L);
+        assertThat(SystemClock.shared(7L), is(sameInstance(clock)));
+
+        clock.stop();
+        long running = clock.now();
+        Thread.sleep(30L);
+        assertThat(clock.now(), is(not(running)));
 
+        clock.stop();
+        long stopped = clock.now();
+        Thread.sleep(30L);
+        assertThat(clock.now(), is(stopped));
+
+        SystemClock renewed = SystemClock.shared(7L);
+        assertThat(renewed, is(not(sameInstance(clock))));
+        renewed.stop();
+    }
+
+    @Test
+    public void shouldFreezeAfterStopped() throws Exception {
+        SystemClock clock = new SystemClock(1L);
+        clock.stop();
+        long stopped = clock.now();
+        Thread.sleep(20L);
+        assertThat(clock.now(), is(stopped));
+    }
 }
@@ -0,0 +1,128 @@
+package com.github.zhongl.jtoolkit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.github.zhongl.jtoolkit.ContextualCallable.contextual;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:zhong.lunfu@gmail.com">zhongl</a>
+ */
+public class TaskContextTest {
+
+  @After
+  public void tearDown() throws Exception {
+    MDC.clear();
+  }
+
+  @Test
+  public void currentContextInTaskOnly() throws Exception {
+    final TaskContext context = TaskContext.named("task").withTraceId("t1");
+    final AtomicReference<TaskContext> current = new AtomicReference<TaskContext>();
+    ContextualRunnable.contextual(new Runnable() {
+      @Override
+      public void run() {
+        current.set(TaskContext.current());
+        assertThat(TaskContext.startedAt() - context.createdAt(), is(greaterThanOrEqualTo(0L)));
+      }
+    }, context).run();
+
+    assertThat(current.get(), is(context));
+    assertThat(TaskContext.current(), is(nullValue()));
+    assertThat(TaskContext.startedAt(), is(0L));
+    assertThat(context.toString(), is("task[t1]"));
+  }
+
+  @Test
+  public void restoreAfterThrown() throws Exception {
+    final String name = Thread.currentThread().getName();
+    MDC.put("user", "outer");
+    final TaskContext outer = TaskContext.named("outer");
+    final Callable<Void> inner = contextual(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        assertThat(TaskContext.current().name(), is("inner"));
+        assertThat(MDC.get("user"), is("inner"));
+        assertThat(MDC.get("request"), is("r1"));
+        throw new IllegalStateException();
+      }
+    }, TaskContext.named("inner").withMdc("user", "inner").withMdc("request", "r1"));
+
+    contextual(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        try {
+          inner.call();
+          fail();
+        } catch (IllegalStateException expected) { }
+        assertThat(TaskContext.current(), is(outer));
+        return null;
+      }
+    }, outer).call();
+
+    assertThat(MDC.get("user"), is("outer"));
+    assertThat(MDC.get("request"), is(nullValue()));
+    assertThat(Thread.currentThread().getName(), is(name));
+
+    try {
+      NamedThreadRunnable.named(new Runnable() {
+        @Override
+        public void run() { throw new IllegalStateException(); }
+      }, "renamed").run();
+      fail();
+    } catch (IllegalStateException expected) { }
+    assertThat(Thread.currentThread().getName(), is(name));
+  }
+
+  @Test
+  public void replaceMdcOfSameKey() throws Exception {
+    MDC.put("user", "outer");
+    contextual(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        assertThat(MDC.get("user"), is("second"));
+        return null;
+      }
+    }, TaskContext.named("task").withMdc("user", "first").withMdc("user", "second")).call();
+
+    assertThat(MDC.get("user"), is("outer"));
+  }
+
+  @Test
+  public void captureToAnotherThread() throws Exception {
+    final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+    executor.prestartAllCoreThreads(); // before MDC put, for logback MDC is inheritable
+    MDC.put("request", "r2");
+    final TaskContext parent = TaskContext.named("parent").withTraceId("t2");
+    try {
+      final String result = contextual(new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          return executor.submit(contextual(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+              final TaskContext current = TaskContext.current();
+              return current.name() + ' ' + current.traceId() + ' ' + MDC.get("request");
+            }
+          }, TaskContext.capture("child"))).get();
+        }
+      }, parent).call();
+      assertThat(result, is("child t2 r2"));
+      assertThat(executor.submit(new Callable<String>() {
+        @Override
+        public String call() throws Exception { return String.valueOf(MDC.get("request")); }
+      }).get(), is("null"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
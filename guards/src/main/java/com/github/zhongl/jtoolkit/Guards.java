@@ -16,6 +16,24 @@ public final class Guards {
         return new NumberCheck(value);
     }
 
+    /**
+     * Check an int or long exactly, without boxing. It is not an overload of {@link #check(Number)}, which accepts
+     * bounds of any {@link Number} for primitives as well.
+     */
+    public static LongCheck checkLong(long value) {
+        return new LongCheck(value);
+    }
+
+    /** Check a float or double without boxing. */
+    public static DoubleCheck checkDouble(double value) {
+        return new DoubleCheck(value);
+    }
+
+    /** @return a range of [min, max], which could be compiled once and shared by threads. */
+    public static Range range(long min, long max) {
+        return new Range(min, false, max, false);
+    }
+
     private Guards() {}
 
     public static class ObjectGet<V> {
@@ -36,6 +54,226 @@ public final class Guards {
 
     }
 
+    /**
+     * {@link LongCheck} compares in long, so it is exact beyond 2^53. It keeps no more than a greater and a less
+     * operation in fields, and does not escape from a check chain, so it would be scalar replaced by JIT.
+     */
+    public static final class LongCheck {
+        private final long value;
+        private byte greater = NONE;
+        private byte less = NONE;
+        private long min;
+        private long max;
+        private boolean lessFirst;
+
+        private LongCheck(long value) {
+            this.value = value;
+        }
+
+        public LongCheck greaterThan(long value) { return greater(EXCLUSIVE, value); }
+
+        public LongCheck greaterThanOrEqual(long value) { return greater(INCLUSIVE, value); }
+
+        public LongCheck lessThan(long value) { return less(EXCLUSIVE, value); }
+
+        public LongCheck lessThanOrEqual(long value) { return less(INCLUSIVE, value); }
+
+        public void orComplain() {
+            if (greater == NONE && less == NONE) throw new IllegalStateException("No operation");
+            if (lessFirst) {
+                complainIfNotLess();
+                complainIfNotGreater();
+            } else {
+                complainIfNotGreater();
+                complainIfNotLess();
+            }
+        }
+
+        private LongCheck greater(byte kind, long value) {
+            if (greater != NONE) throw new IllegalStateException("Complicit greater operation");
+            greater = kind;
+            min = value;
+            return this;
+        }
+
+        private LongCheck less(byte kind, long value) {
+            if (less != NONE) throw new IllegalStateException("Complicit less operation");
+            lessFirst = greater == NONE;
+            less = kind;
+            max = value;
+            return this;
+        }
+
+        private void complainIfNotGreater() {
+            if (greater == EXCLUSIVE && value <= min) throw new IllegalArgumentException("Number should > " + min);
+            if (greater == INCLUSIVE && value < min) throw new IllegalArgumentException("Number should >= " + min);
+        }
+
+        private void complainIfNotLess() {
+            if (less == EXCLUSIVE && value >= max) throw new IllegalArgumentException("Number should < " + max);
+            if (less == INCLUSIVE && value > max) throw new IllegalArgumentException("Number should <= " + max);
+        }
+    }
+
+    /** {@link DoubleCheck} is {@link LongCheck} of double, NaN is never in range. */
+    public static final class DoubleCheck {
+        private final double value;
+        private byte greater = NONE;
+        private byte less = NONE;
+        private double min;
+        private double max;
+        private boolean lessFirst;
+
+        private DoubleCheck(double value) {
+            this.value = value;
+        }
+
+        public DoubleCheck greaterThan(double value) { return greater(EXCLUSIVE, value); }
+
+        public DoubleCheck greaterThanOrEqual(double value) { return greater(INCLUSIVE, value); }
+
+        public DoubleCheck lessThan(double value) { return less(EXCLUSIVE, value); }
+
+        public DoubleCheck lessThanOrEqual(double value) { return less(INCLUSIVE, value); }
+
+        public void orComplain() {
+            if (greater == NONE && less == NONE) throw new IllegalStateException("No operation");
+            if (lessFirst) {
+                complainIfNotLess();
+                complainIfNotGreater();
+            } else {
+                complainIfNotGreater();
+                complainIfNotLess();
+            }
+        }
+
+        private DoubleCheck greater(byte kind, double value) {
+            if (greater != NONE) throw new IllegalStateException("Complicit greater operation");
+            greater = kind;
+            min = value;
+            return this;
+        }
+
+        private DoubleCheck less(byte kind, double value) {
+            if (less != NONE) throw new IllegalStateException("Complicit less operation");
+            lessFirst = greater == NONE;
+            less = kind;
+            max = value;
+            return this;
+        }
+
+        private void complainIfNotGreater() {
+            if (greater == EXCLUSIVE && !(value > min)) throw new IllegalArgumentException("Number should > " + min);
+            if (greater == INCLUSIVE && !(value >= min)) throw new IllegalArgumentException("Number should >= " + min);
+        }
+
+        private void complainIfNotLess() {
+            if (less == EXCLUSIVE && !(value < max)) throw new IllegalArgumentException("Number should < " + max);
+            if (less == INCLUSIVE && !(value <= max)) throw new IllegalArgumentException("Number should <= " + max);
+        }
+    }
+
+    /**
+     * {@link Range} is an immutable validator of long, int as well, by bounds normalized to inclusive ones, so that a
+     * value is checked by a single unsigned comparison of its offset from the lower bound.
+     */
+    public static final class Range {
+        private final long min;
+        private final boolean exclusiveMin;
+        private final long max;
+        private final boolean exclusiveMax;
+        private final long lower;
+        private final long span; // of inclusive bounds, biased by Long.MIN_VALUE for unsigned comparison
+
+        private Range(long min, boolean exclusiveMin, long max, boolean exclusiveMax) {
+            this.min = min;
+            this.exclusiveMin = exclusiveMin;
+            this.max = max;
+            this.exclusiveMax = exclusiveMax;
+            if (exclusiveMin && min == Long.MAX_VALUE || exclusiveMax && max == Long.MIN_VALUE)
+                throw new IllegalArgumentException("Range " + this + " is empty");
+            final long lower = exclusiveMin ? min + 1 : min;
+            final long upper = exclusiveMax ? max - 1 : max;
+            if (lower > upper) throw new IllegalArgumentException("Range " + this + " is empty");
+            this.lower = lower;
+            this.span = upper - lower + Long.MIN_VALUE;
+        }
+
+        /** @return a range of (min, max). */
+        public Range exclusive() { return new Range(min, true, max, true); }
+
+        /** @return a range of (min, max]. */
+        public Range exclusiveMin() { return new Range(min, true, max, exclusiveMax); }
+
+        /** @return a range of [min, max). */
+        public Range exclusiveMax() { return new Range(min, exclusiveMin, max, true); }
+
+        public boolean contains(long value) { return value - lower + Long.MIN_VALUE <= span; }
+
+        /** @return the value if it is in range. */
+        public long orComplain(long value) {
+            if (!contains(value)) complain(value);
+            return value;
+        }
+
+        /** @return index of the first value out of range, or -1 if none. */
+        public int indexOutOf(int[] values, int from, int to) {
+            for (int i = from; i < to; i++) if ((long) values[i] - lower + Long.MIN_VALUE > span) return i;
+            return -1;
+        }
+
+        /** @return index of the first value out of range, or -1 if none. */
+        public int indexOutOf(long[] values, int from, int to) {
+            for (int i = from; i < to; i++) if (values[i] - lower + Long.MIN_VALUE > span) return i;
+            return -1;
+        }
+
+        /** @return the values if all of them are in range. */
+        public int[] orComplain(int[] values) {
+            orComplain(values, 0, values.length);
+            return values;
+        }
+
+        /** Check values of [from, to). */
+        public void orComplain(int[] values, int from, int to) {
+            final int i = indexOutOf(values, from, to);
+            if (i >= 0) complain(i, values[i]);
+        }
+
+        /** @return the values if all of them are in range. */
+        public long[] orComplain(long[] values) {
+            orComplain(values, 0, values.length);
+            return values;
+        }
+
+        /** Check values of [from, to). */
+        public void orComplain(long[] values, int from, int to) {
+            final int i = indexOutOf(values, from, to);
+            if (i >= 0) complain(i, values[i]);
+        }
+
+        @Override
+        public String toString() { return (exclusiveMin ? "(" : "[") + min + ", " + max + (exclusiveMax ? ")" : "]"); }
+
+        // out of hot path, so that callers could be inlined.
+        private void complain(long value) {
+            throw new IllegalArgumentException("Number should " + complaintOf(value));
+        }
+
+        private void complain(int index, long value) {
+            throw new IllegalArgumentException("Number at " + index + " should " + complaintOf(value));
+        }
+
+        private String complaintOf(long value) {
+            if (value < lower) return (exclusiveMin ? "> " : ">= ") + min;
+            return (exclusiveMax ? "< " : "<= ") + max;
+        }
+    }
+
+    private static final byte NONE = 0;
+    private static final byte EXCLUSIVE = 1;
+    private static final byte INCLUSIVE = 2;
+
     public static class NumberCheck {
 
         protected final Number value;
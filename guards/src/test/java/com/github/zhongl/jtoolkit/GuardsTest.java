@@ -3,7 +3,10 @@ package com.github.zhongl.jtoolkit;
 import org.junit.Test;
 
 import static com.github.zhongl.jtoolkit.Guards.check;
+import static com.github.zhongl.jtoolkit.Guards.checkDouble;
+import static com.github.zhongl.jtoolkit.Guards.checkLong;
 import static com.github.zhongl.jtoolkit.Guards.get;
+import static com.github.zhongl.jtoolkit.Guards.range;
 import static com.github.zhongl.jtoolkit.Validates.Executable;
 import static com.github.zhongl.jtoolkit.Validates.expect;
 import static org.hamcrest.Matchers.is;
@@ -141,4 +144,127 @@ public class GuardsTest {
             }
         }).complain(IllegalStateException.class, "No operation");
     }
+
+    @Test
+    public void shouldCompareLongExactly() throws Exception {
+        checkLong(9007199254740993L).greaterThan(9007199254740992L).orComplain();
+        checkLong(Long.MAX_VALUE).greaterThan(Long.MAX_VALUE - 1).lessThanOrEqual(Long.MAX_VALUE).orComplain();
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                checkLong(Long.MAX_VALUE).lessThan(Long.MAX_VALUE).orComplain();
+            }
+        }).complain(IllegalArgumentException.class, "Number should < 9223372036854775807");
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                check(9007199254740993L).greaterThan(9007199254740992L).orComplain();
+            }
+        }).complain(IllegalArgumentException.class, "Number should > 9007199254740992");
+    }
+
+    @Test
+    public void shouldComplainInOrderOfOperations() throws Exception {
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                checkLong(0).lessThan(-5).greaterThan(3).orComplain();
+            }
+        }).complain(IllegalArgumentException.class, "Number should < -5");
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                checkLong(0).greaterThan(3).lessThan(-5).orComplain();
+            }
+        }).complain(IllegalArgumentException.class, "Number should > 3");
+    }
+
+    @Test
+    public void shouldCheckDouble() throws Exception {
+        checkDouble(0.5).greaterThan(0).lessThanOrEqual(0.5).orComplain();
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                checkDouble(Double.NaN).greaterThanOrEqual(0).orComplain();
+            }
+        }).complain(IllegalArgumentException.class, "Number should >= 0.0");
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                checkDouble(1.5).lessThan(1.5).lessThan(2).orComplain();
+            }
+        }).complain(IllegalStateException.class, "Complicit less operation");
+    }
+
+    @Test
+    public void shouldValidateByRange() throws Exception {
+        final Guards.Range percent = range(0, 100).exclusiveMax();
+        assertThat(percent.orComplain(0), is(0L));
+        assertThat(percent.contains(99), is(true));
+        assertThat(percent.contains(100), is(false));
+        assertThat(percent.contains(-1), is(false));
+        assertThat(percent.toString(), is("[0, 100)"));
+        assertThat(range(Long.MIN_VALUE, Long.MAX_VALUE).contains(Long.MIN_VALUE), is(true));
+        assertThat(range(Long.MIN_VALUE, Long.MAX_VALUE).exclusive().contains(Long.MAX_VALUE), is(false));
+        assertThat(range(0, 0).contains(0), is(true));
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                range(0, 100).exclusive().orComplain(0);
+            }
+        }).complain(IllegalArgumentException.class, "Number should > 0");
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                percent.orComplain(100);
+            }
+        }).complain(IllegalArgumentException.class, "Number should < 100");
+    }
+
+    @Test
+    public void shouldComplainEmptyRange() throws Exception {
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                range(1, 2).exclusive();
+            }
+        }).complain(IllegalArgumentException.class, "Range (1, 2) is empty");
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                range(Long.MAX_VALUE, Long.MAX_VALUE).exclusiveMin();
+            }
+        }).complain(IllegalArgumentException.class, "Range (9223372036854775807, 9223372036854775807] is empty");
+    }
+
+    @Test
+    public void shouldValidateArraysByRange() throws Exception {
+        final Guards.Range range = range(-10, 10);
+        final int[] ints = {-10, 0, 10, 11, 3};
+        assertThat(range.indexOutOf(ints, 0, ints.length), is(3));
+        assertThat(range.indexOutOf(ints, 0, 3), is(-1));
+        range.orComplain(ints, 0, 3);
+        final long[] longs = {Long.MIN_VALUE, 0L};
+        assertThat(range.indexOutOf(longs, 0, longs.length), is(0));
+        assertThat(range.orComplain(new long[]{1L, 2L}).length, is(2));
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                range.orComplain(ints);
+            }
+        }).complain(IllegalArgumentException.class, "Number at 3 should <= 10");
+        expect(new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                range.orComplain(longs);
+            }
+        }).complain(IllegalArgumentException.class, "Number at 0 should >= -10");
+    }
+
+    @Test
+    public void shouldCheckPrimitiveByAnyNumber() throws Exception {
+        int value = 1;
+        check(value).greaterThan(0.5).lessThan(1.5).orComplain();
+        check(value).greaterThanOrEqual(Integer.valueOf(1)).orComplain();
+    }
 }